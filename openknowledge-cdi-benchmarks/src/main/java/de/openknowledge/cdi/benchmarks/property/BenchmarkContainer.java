@@ -0,0 +1,66 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.apache.webbeans.config.WebBeansContext;
+import org.apache.webbeans.spi.ContainerLifecycle;
+
+/**
+ * A standalone OpenWebBeans container for benchmarks. Beans are created the way
+ * the container creates them for injection, so every created bean runs through
+ * the complete property injection pipeline.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class BenchmarkContainer {
+
+  private ContainerLifecycle lifecycle;
+  private BeanManager beanManager;
+
+  public void start() {
+    lifecycle = WebBeansContext.currentInstance().getService(ContainerLifecycle.class);
+    lifecycle.startApplication(null);
+    beanManager = lifecycle.getBeanManager();
+  }
+
+  public void stop() {
+    lifecycle.stopApplication(null);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> Bean<T> getBean(Class<T> type) {
+    return (Bean<T>)beanManager.resolve(beanManager.getBeans(type));
+  }
+
+  /**
+   * Creates a new dependent instance of the given bean. The creational context is released
+   * immediately, so instances are not retained between benchmark invocations.
+   *
+   * @param bean The bean.
+   * @return The injected instance.
+   */
+  public <T> T newInstance(Bean<T> bean) {
+    CreationalContext<T> creationalContext = beanManager.createCreationalContext(bean);
+    T instance = bean.create(creationalContext);
+    bean.destroy(instance, creationalContext);
+    return instance;
+  }
+}
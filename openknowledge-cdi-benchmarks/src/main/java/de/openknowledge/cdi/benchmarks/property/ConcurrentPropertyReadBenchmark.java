@@ -0,0 +1,104 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.Bean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.openknowledge.cdi.common.property.DynamicProperty;
+
+/**
+ * Measures concurrent property reads against a shared container: injections into new
+ * beans and reads of a shared {@link DynamicProperty}, with one, four and all available
+ * threads. Use <code>-t</code> to run with a different number of threads.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConcurrentPropertyReadBenchmark {
+
+  private BenchmarkContainer container = new BenchmarkContainer();
+  private Bean<SinglePropertyBean> singlePropertyBean;
+  private DynamicProperty<Integer> dynamicProperty;
+
+  @Setup
+  public void startContainer() {
+    container.start();
+    singlePropertyBean = container.getBean(SinglePropertyBean.class);
+    dynamicProperty = container.newInstance(container.getBean(DynamicPropertyBean.class)).getValue();
+  }
+
+  @TearDown
+  public void stopContainer() {
+    container.stop();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String injectWithOneThread() {
+    return container.newInstance(singlePropertyBean).getValue();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String injectWithFourThreads() {
+    return container.newInstance(singlePropertyBean).getValue();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String injectWithAllThreads() {
+    return container.newInstance(singlePropertyBean).getValue();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Integer readDynamicWithOneThread() {
+    return dynamicProperty.get();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Integer readDynamicWithFourThreads() {
+    return dynamicProperty.get();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public Integer readDynamicWithAllThreads() {
+    return dynamicProperty.get();
+  }
+}
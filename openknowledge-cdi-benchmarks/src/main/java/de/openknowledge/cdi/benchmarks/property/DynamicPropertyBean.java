@@ -0,0 +1,36 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import javax.inject.Inject;
+
+import de.openknowledge.cdi.common.property.DynamicProperty;
+import de.openknowledge.cdi.common.property.Property;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class DynamicPropertyBean {
+
+  @Inject
+  @Property(name = "benchmark.int", source = "benchmark.properties")
+  private DynamicProperty<Integer> value;
+
+  public DynamicProperty<Integer> getValue() {
+    return value;
+  }
+}
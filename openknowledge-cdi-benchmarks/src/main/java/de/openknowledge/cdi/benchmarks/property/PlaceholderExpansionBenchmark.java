@@ -0,0 +1,78 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.openknowledge.cdi.common.property.source.PlaceholderTemplate;
+import de.openknowledge.cdi.common.property.source.PropertyExpander;
+import de.openknowledge.cdi.common.property.source.PropertySnapshot;
+
+/**
+ * Measures the expansion of a loaded source with a placeholder chain of varying depth,
+ * i.e. <code>chain3=${chain2}/3</code>, <code>chain2=${chain1}/2</code>, ...
+ * Sources are expanded once when they are loaded or reloaded, so the expansion is measured
+ * without a container.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PlaceholderExpansionBenchmark {
+
+  private static final PlaceholderTemplate.Resolver SYSTEM_PROPERTIES = new PlaceholderTemplate.Resolver() {
+    public String resolve(String placeholder) {
+      String value = System.getProperty(placeholder);
+      return value != null ? value : "!" + placeholder + "!";
+    }
+  };
+
+  @Param({"1", "10", "100"})
+  private int depth;
+
+  private Properties properties = new Properties();
+
+  @Setup
+  public void createChain() {
+    properties.setProperty("chain0", "${java.io.tmpdir}");
+    for (int i = 1; i <= depth; i++) {
+      properties.setProperty("chain" + i, "${chain" + (i - 1) + "}/" + i);
+    }
+  }
+
+  @Benchmark
+  public PropertySnapshot expandChain() {
+    return new PropertyExpander(properties, SYSTEM_PROPERTIES).expand();
+  }
+}
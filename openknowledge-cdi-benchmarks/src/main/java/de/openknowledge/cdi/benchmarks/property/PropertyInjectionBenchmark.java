@@ -0,0 +1,74 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.Bean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the injection of {@link de.openknowledge.cdi.common.property.Property} values
+ * into newly created beans: a single string and a set of typed values that have to be converted.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PropertyInjectionBenchmark {
+
+  private BenchmarkContainer container = new BenchmarkContainer();
+  private Bean<SinglePropertyBean> singlePropertyBean;
+  private Bean<TypedPropertyBean> typedPropertyBean;
+
+  @Setup
+  public void startContainer() {
+    container.start();
+    singlePropertyBean = container.getBean(SinglePropertyBean.class);
+    typedPropertyBean = container.getBean(TypedPropertyBean.class);
+  }
+
+  @TearDown
+  public void stopContainer() {
+    container.stop();
+  }
+
+  @Benchmark
+  public String injectSingleProperty() {
+    return container.newInstance(singlePropertyBean).getValue();
+  }
+
+  @Benchmark
+  public long injectTypedProperties() {
+    return container.newInstance(typedPropertyBean).getChecksum();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.openknowledge.cdi.common.property.PropertyStatistics;
+
+/**
+ * Measures the statistics recorded for every property injection (a cache hit and a read of the
+ * same property) with one and all available threads. The <code>atomic</code> benchmarks record
+ * the same counts into shared {@link AtomicLong}s as baseline, the <code>none</code> benchmarks
+ * record nothing. Recording into the {@link PropertyStatistics} should scale with the number
+ * of threads like <code>none</code>, while the shared counters do not.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PropertyStatisticsBenchmark {
+
+  private static final String PROPERTY_NAME = "benchmark.property";
+
+  private PropertyStatistics statistics = new PropertyStatistics();
+  private AtomicLong cacheHits = new AtomicLong();
+  private AtomicLong reads = new AtomicLong();
+
+  @Benchmark
+  @Threads(1)
+  public void recordWithOneThread() {
+    record();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void recordWithAllThreads() {
+    record();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long atomicWithOneThread() {
+    return recordAtomic();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public long atomicWithAllThreads() {
+    return recordAtomic();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void noneWithOneThread() {
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void noneWithAllThreads() {
+  }
+
+  private void record() {
+    statistics.recordCacheHit();
+    statistics.recordRead(PROPERTY_NAME);
+  }
+
+  private long recordAtomic() {
+    cacheHits.incrementAndGet();
+    return reads.incrementAndGet();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import de.openknowledge.cdi.common.property.Property;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class TypedPropertyBean {
+
+  @Inject
+  @Property(name = "benchmark.int", source = "benchmark.properties")
+  private int intValue;
+
+  @Inject
+  @Property(name = "benchmark.long", source = "benchmark.properties")
+  private long longValue;
+
+  @Inject
+  @Property(name = "benchmark.boolean", source = "benchmark.properties")
+  private boolean booleanValue;
+
+  @Inject
+  @Property(name = "benchmark.decimal", source = "benchmark.properties")
+  private BigDecimal decimalValue;
+
+  @Inject
+  @Property(name = "benchmark.unit", source = "benchmark.properties")
+  private TimeUnit unitValue;
+
+  public long getChecksum() {
+    return intValue + longValue + (booleanValue ? 1 : 0) + decimalValue.longValue() + unitValue.ordinal();
+  }
+}
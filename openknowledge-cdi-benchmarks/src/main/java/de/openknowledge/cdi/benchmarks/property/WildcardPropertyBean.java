@@ -0,0 +1,37 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import java.util.Properties;
+
+import javax.inject.Inject;
+
+import de.openknowledge.cdi.common.property.Property;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class WildcardPropertyBean {
+
+  @Inject
+  @Property(name = "wildcard.*", source = "file:${" + WildcardPropertyBenchmark.DIRECTORY_PROPERTY + "}/wildcard.properties")
+  private Properties values;
+
+  public Properties getValues() {
+    return values;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.benchmarks.property;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.Bean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the injection of a property wildcard matching a varying number of keys.
+ * The source is written to a temporary directory before the container is started.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WildcardPropertyBenchmark {
+
+  public static final String DIRECTORY_PROPERTY = "de.openknowledge.cdi.benchmarks.dir";
+
+  @Param({"10", "100", "1000"})
+  private int keyCount;
+
+  private BenchmarkContainer container = new BenchmarkContainer();
+  private Bean<WildcardPropertyBean> wildcardPropertyBean;
+  private File directory;
+
+  @Setup
+  public void startContainer() throws IOException {
+    directory = File.createTempFile("wildcard", "");
+    directory.delete();
+    directory.mkdirs();
+    Properties properties = new Properties();
+    for (int i = 0; i < keyCount; i++) {
+      properties.setProperty("wildcard.key" + i, "value" + i);
+      properties.setProperty("other.key" + i, "value" + i);
+    }
+    OutputStream out = new FileOutputStream(new File(directory, "wildcard.properties"));
+    try {
+      properties.store(out, null);
+    } finally {
+      out.close();
+    }
+    System.setProperty(DIRECTORY_PROPERTY, directory.getAbsolutePath());
+    container.start();
+    wildcardPropertyBean = container.getBean(WildcardPropertyBean.class);
+  }
+
+  @TearDown
+  public void stopContainer() {
+    container.stop();
+    new File(directory, "wildcard.properties").delete();
+    directory.delete();
+  }
+
+  @Benchmark
+  public Properties injectWildcard() {
+    return container.newInstance(wildcardPropertyBean).getValues();
+  }
+}
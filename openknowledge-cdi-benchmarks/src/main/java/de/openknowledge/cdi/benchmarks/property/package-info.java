@@ -0,0 +1,22 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * JMH benchmarks of the property injection pipeline. Build the module and run all
+ * benchmarks with <code>mvn exec:exec</code> from the module directory, pass JMH options
+ * with <code>-Djmh.args="..."</code>, i.e. <code>-Djmh.args="-t 8 ConcurrentPropertyRead"</code>.
+ */
+package de.openknowledge.cdi.benchmarks.property;
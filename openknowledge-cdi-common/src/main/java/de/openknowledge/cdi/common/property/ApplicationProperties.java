@@ -18,42 +18,65 @@ package de.openknowledge.cdi.common.property;
 
 import javax.enterprise.inject.spi.InjectionPoint;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
  * This object represents once injected using cdi the
  * current set of application distinctProperties.
+ * <p/>
+ * The properties are keyed by name. Values are registered on every property
+ * injection and may be registered concurrently.
+ * <p/>
+ * Property accesses are counted in the {@link PropertyStatistics} of the application.
  * 
  * @author Jens Schumann - open knowledge GmbH
  * @version $Revision: 7682 $
  */
 public class ApplicationProperties {
 
-  private Set<ApplicationProperty> distinctProperties = new HashSet<ApplicationProperty>();
-  private Set<String> distinctPropertyKeys = new HashSet<String>();
+  private ConcurrentMap<String, ApplicationProperty> distinctProperties
+    = new ConcurrentHashMap<String, ApplicationProperty>();
+  private PropertyStatistics statistics = new PropertyStatistics();
 
   public Collection<ApplicationProperty> getDistinctProperties() {
-    return distinctProperties;
+    return Collections.unmodifiableCollection(distinctProperties.values());
+  }
+
+  public PropertyStatistics getStatistics() {
+    return statistics;
   }
 
   public Set<String> getDistinctPropertyKeys() {
-    return distinctPropertyKeys;
+    return Collections.unmodifiableSet(distinctProperties.keySet());
   }
 
+  /**
+   * @param aPropertyName The name of the property.
+   * @return The property or null, if no injection point for the property is known.
+   */
+  public ApplicationProperty getProperty(String aPropertyName) {
+    return distinctProperties.get(aPropertyName);
+  }
 
   public void addProperty(Property aProperty) {
-    distinctPropertyKeys.add(aProperty.name());
-    distinctProperties.add(new ApplicationProperty(aProperty.name()));
+    addProperty(aProperty.name());
+  }
+
+  public void addProperty(String aPropertyName) {
+    if (!distinctProperties.containsKey(aPropertyName)) {
+      distinctProperties.putIfAbsent(aPropertyName, new ApplicationProperty(aPropertyName));
+    }
   }
 
   public void registerPropertyValue(InjectionPoint aInjectionPoint, String aValue) {
     Property property = aInjectionPoint.getAnnotated().getAnnotation(Property.class);
-    for (ApplicationProperty appProperty : distinctProperties) {
-      if (appProperty.getPropertyKey().equals(property.name())) {
-        appProperty.registerInjectionPoint(aInjectionPoint, property, aValue);
-      }
+    ApplicationProperty appProperty = distinctProperties.get(property.name());
+    if (appProperty != null) {
+      appProperty.registerInjectionPoint(aInjectionPoint, property, aValue);
     }
   }
 }
@@ -16,6 +16,7 @@
 
 package de.openknowledge.cdi.common.property;
 
+import de.openknowledge.cdi.common.property.index.PropertyIndex;
 import de.openknowledge.cdi.common.qualifier.Current;
 import de.openknowledge.cdi.common.spi.SingletonBean;
 
@@ -36,6 +37,8 @@ import java.util.Set;
 /**
  * Injects an instance of {@link Current} {@link ApplicationProperties} containing
  * the supported {@link Property} instances of an application.
+ * <p/>
+ * Types listed in the compile time {@link PropertyIndex} are not scanned.
  *
  * @author Jens Schumann - open knowledge GmbH
  * @version $Revision: 7682 $
@@ -43,10 +46,18 @@ import java.util.Set;
 public class ApplicationPropertiesExtension implements Extension {
 
   private ApplicationProperties properties = new ApplicationProperties();
-  
+  private PropertyIndex index = PropertyIndex.load();
+
   public void recordProperty(@Observes ProcessAnnotatedType event) {
 
     AnnotatedType annotatedType = event.getAnnotatedType();
+    if (index.isIndexed(annotatedType.getJavaClass())) {
+      for (PropertyIndex.IndexedProperty property : index.getProperties(annotatedType.getJavaClass())) {
+        properties.addProperty(property.getName());
+      }
+      return;
+    }
+
     Set<AnnotatedField> fields = annotatedType.getFields();
     for (AnnotatedField f : fields) {
       if (f.isAnnotationPresent(Property.class)) {
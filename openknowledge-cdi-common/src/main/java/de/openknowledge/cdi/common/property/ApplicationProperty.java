@@ -19,19 +19,23 @@ package de.openknowledge.cdi.common.property;
 import javax.enterprise.inject.spi.InjectionPoint;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents configurable application properties. The provided
  * details are property metadata that can be analyzed during application runtime.
+ * <p/>
+ * Injection points may be registered concurrently. The first registered value
+ * of an injection point is kept.
  *
  * @author Jens Schumann - open knowledge GmbH
  * @version $Revision: 7684 $
  */
 public class ApplicationProperty {
   private String propertyKey;
-  private Map<String, ApplicationPropertyBinding> values = new HashMap<String, ApplicationPropertyBinding>();
+  private ConcurrentMap<String, ApplicationPropertyBinding> values
+    = new ConcurrentHashMap<String, ApplicationPropertyBinding>();
 
 
   public ApplicationProperty(String aPropertyKey) {
@@ -44,7 +48,7 @@ public class ApplicationProperty {
       return;
     }
 
-    values.put(binding, new ApplicationPropertyBinding(binding, aProperty, currentValue));
+    values.putIfAbsent(binding, new ApplicationPropertyBinding(binding, aProperty, currentValue));
   }
 
 
@@ -0,0 +1,205 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import static org.apache.commons.lang.ClassUtils.primitiveToWrapper;
+
+import java.beans.Introspector;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.openknowledge.cdi.common.property.PropertyConverters.PropertyConverter;
+
+/**
+ * Binds the properties of a {@link ConfigurationObject} to a class or interface. The bound members,
+ * their property names and converters are determined once when the binder is created, binding an
+ * object is a single pass over the precomputed members.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+class ConfigurationBinder<T> {
+
+  private static final String GETTER_PREFIX = "get";
+  private static final String BOOLEAN_GETTER_PREFIX = "is";
+
+  private static final PropertyConverter CHARACTER_CONVERTER = new PropertyConverter() {
+    public Object convert(String value) {
+      if (value.length() != 1) {
+        throw new IllegalArgumentException("Not a single character");
+      }
+      return value.charAt(0);
+    }
+  };
+
+  private Class<T> type;
+  private Constructor<T> constructor;
+  private List<Binding> bindings = new ArrayList<Binding>();
+
+  public ConfigurationBinder(Class<T> aType, PropertyConverters converters) {
+    type = aType;
+    if (type.isInterface()) {
+      for (Method method : type.getMethods()) {
+        if (method.getParameterTypes().length > 0 || method.getReturnType() == Void.TYPE) {
+          throw new IllegalArgumentException("Method " + method + " cannot be bound to a property");
+        }
+        bindings.add(new Binding(getPropertyName(method), method.getReturnType(), method, converters));
+      }
+    } else {
+      try {
+        constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException(type.getName() + " must have a default constructor to be bound", e);
+      }
+      for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && !field.isSynthetic()) {
+            field.setAccessible(true);
+            bindings.add(new Binding(field.getName(), field.getType(), field, converters));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates an object bound to the given properties.
+   *
+   * @param prefix The prefix of the property names, including the trailing dot.
+   * @param properties The properties, usually all properties starting with the prefix.
+   * @param statistics Receives conversion failures.
+   * @return The bound object.
+   */
+  public T bind(String prefix, Map<?, ?> properties, PropertyStatistics statistics) {
+    if (constructor == null) {
+      Map<Method, Object> values = new HashMap<Method, Object>();
+      for (Binding binding : bindings) {
+        values.put((Method)binding.member, binding.convert(prefix, properties, statistics));
+      }
+      return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                                              new Class<?>[] {type},
+                                              new ConfigurationHandler(type, values)));
+    }
+    try {
+      T object = constructor.newInstance();
+      for (Binding binding : bindings) {
+        Object value = binding.convert(prefix, properties, statistics);
+        if (value != null) {
+          ((Field)binding.member).set(object, value);
+        }
+      }
+      return object;
+    } catch (InstantiationException e) {
+      throw new IllegalArgumentException("Unable to instantiate " + type.getName(), e);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Unable to instantiate " + type.getName(), e);
+    } catch (InvocationTargetException e) {
+      throw new IllegalArgumentException("Unable to instantiate " + type.getName(), e.getTargetException());
+    }
+  }
+
+  private static String getPropertyName(Method method) {
+    String name = method.getName();
+    if (name.startsWith(GETTER_PREFIX) && name.length() > GETTER_PREFIX.length()) {
+      return Introspector.decapitalize(name.substring(GETTER_PREFIX.length()));
+    }
+    if (name.startsWith(BOOLEAN_GETTER_PREFIX) && name.length() > BOOLEAN_GETTER_PREFIX.length()
+      && primitiveToWrapper(method.getReturnType()) == Boolean.class) {
+      return Introspector.decapitalize(name.substring(BOOLEAN_GETTER_PREFIX.length()));
+    }
+    return name;
+  }
+
+  private class Binding {
+
+    private String name;
+    private Class<?> valueType;
+    private AccessibleObject member;
+    private PropertyConverter converter;
+
+    public Binding(String aName, Class<?> aValueType, AccessibleObject aMember, PropertyConverters converters) {
+      name = aName;
+      valueType = aValueType;
+      member = aMember;
+      Class<?> wrapperType = primitiveToWrapper(valueType);
+      converter = wrapperType == Character.class ? CHARACTER_CONVERTER : converters.getConverter(wrapperType);
+      if (converter == null) {
+        throw new IllegalArgumentException(valueType.getName() + " of " + member
+          + " must have String-constructor or static valueOf(String) or parse(String) method to be bound");
+      }
+    }
+
+    public Object convert(String prefix, Map<?, ?> properties, PropertyStatistics statistics) {
+      String key = prefix + name;
+      Object value = properties.get(key);
+      if (value == null) {
+        if (valueType.isPrimitive() && constructor == null) {
+          throw new IllegalArgumentException("Missing property " + key + " for " + member);
+        }
+        return null;
+      }
+      try {
+        return converter.convert(value.toString());
+      } catch (InvocationTargetException e) {
+        statistics.recordConversionFailure(key);
+        throw buildIllegalArgumentException(key, value, e.getTargetException());
+      } catch (Exception e) {
+        statistics.recordConversionFailure(key);
+        throw buildIllegalArgumentException(key, value, e);
+      }
+    }
+
+    private RuntimeException buildIllegalArgumentException(String key, Object value, Throwable cause) {
+      return new IllegalArgumentException("Unable to convert \"" + value + "\" to " + valueType.getName()
+        + " for property " + key + " of " + type.getName(), cause);
+    }
+  }
+
+  private static class ConfigurationHandler implements InvocationHandler {
+
+    private Class<?> type;
+    private Map<Method, Object> values;
+
+    public ConfigurationHandler(Class<?> aType, Map<Method, Object> someValues) {
+      type = aType;
+      values = someValues;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (method.getDeclaringClass() == Object.class) {
+        if (method.getName().equals("equals")) {
+          return proxy == args[0];
+        } else if (method.getName().equals("hashCode")) {
+          return System.identityHashCode(proxy);
+        }
+        return type.getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+      }
+      return values.get(method);
+    }
+  }
+}
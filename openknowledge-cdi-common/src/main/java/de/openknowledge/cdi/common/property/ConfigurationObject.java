@@ -0,0 +1,71 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import javax.enterprise.util.Nonbinding;
+import javax.inject.Qualifier;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ *
+ * Indicates that the injected object should be bound to all properties
+ * starting with a common prefix. Example:
+ * <pre>
+ * &#064;Inject @ConfigurationObject(prefix = "mail") private MailSettings settings;
+ * </pre>
+ * The properties <code>mail.host</code>, <code>mail.port</code>, ... are read in one pass
+ * from the property source.
+ * <p/>
+ * Classes are instantiated using their default constructor. Every non-static, non-final field
+ * is bound to the property named like the field. Fields without a property keep their initial value.
+ * <p/>
+ * Interfaces are implemented and every method without parameters is bound to the property named like
+ * the method (<code>getHost()</code>, <code>isEnabled()</code> or <code>host()</code>).
+ * Methods without a property return null.
+ * <p/>
+ * The properties are converted like {@link Property} values. The binding of a type is computed once
+ * and shared by all injection points.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@Qualifier
+@Retention(RUNTIME)
+@Target({ElementType.PARAMETER, ElementType.FIELD, ElementType.METHOD})
+public @interface ConfigurationObject {
+
+  /**
+   *
+   * The common prefix of the properties, i.e. <code>mail</code> for <code>mail.host</code>.
+   * A trailing dot is optional.
+   *
+   * @return The prefix. Keep empty to bind properties without a prefix.
+   */
+  @Nonbinding String prefix() default "";
+
+  /**
+   *
+   * The source to use. See {@link Property#source()}.
+   *
+   * @return The property source.
+   */
+  @Nonbinding String source() default "";
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import static de.openknowledge.cdi.common.property.PropertiesLoader.toClass;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.AnnotatedConstructor;
+import javax.enterprise.inject.spi.AnnotatedField;
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.AnnotatedParameter;
+import javax.enterprise.inject.spi.AnnotatedType;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
+import javax.enterprise.inject.spi.ProcessBean;
+
+import de.openknowledge.cdi.common.property.index.PropertyIndex;
+import de.openknowledge.cdi.common.spi.DelegatingBean;
+
+/**
+ * This extension enables the injection of any type into injection points annotated
+ * with {@link ConfigurationObject}. For every injected type a bean is added that
+ * delegates to {@link PropertiesLoader#produceConfigurationObject(javax.enterprise.inject.spi.InjectionPoint)}.
+ * The injection points of types listed in the compile time {@link PropertyIndex}
+ * are taken from the index instead of being scanned.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class ConfigurationObjectExtension implements Extension {
+
+  private Set<Class<?>> configurationTypes = new HashSet<Class<?>>();
+  private Bean<?> produceConfigurationBean;
+  private PropertyIndex index = PropertyIndex.load();
+
+  public <T> void registerConfigurationTypes(@Observes ProcessAnnotatedType<T> annotatedTypeEvent) {
+    AnnotatedType<T> annotatedType = annotatedTypeEvent.getAnnotatedType();
+    if (!registerIndexedConfigurationTypes(annotatedType.getJavaClass())) {
+      registerConfigurationTypes(annotatedType);
+    }
+  }
+
+  public void registerProduceConfigurationBean(@Observes ProcessBean<?> processBeanEvent) {
+    Bean<?> bean = processBeanEvent.getBean();
+    if (isProduceConfigurationBean(bean)) {
+      produceConfigurationBean = bean;
+    }
+  }
+
+  public void addBeans(@Observes AfterBeanDiscovery afterBeanDiscoveryEvent) {
+    for (Class<?> configurationType : configurationTypes) {
+      afterBeanDiscoveryEvent.addBean(createProduceConfigurationBean(produceConfigurationBean, configurationType));
+    }
+  }
+
+  private boolean registerIndexedConfigurationTypes(Class<?> type) {
+    if (!index.isIndexed(type)) {
+      return false;
+    }
+    Set<Class<?>> indexedTypes = new HashSet<Class<?>>();
+    for (PropertyIndex.IndexedProperty configurationObject : index.getConfigurationObjects(type)) {
+      try {
+        Class<?> configurationType = configurationObject.loadType(type.getClassLoader());
+        if (configurationType != null) {
+          indexedTypes.add(configurationType);
+        }
+      } catch (ClassNotFoundException e) {
+        // the index does not match the deployed classes, scan the type instead
+        return false;
+      }
+    }
+    configurationTypes.addAll(indexedTypes);
+    return true;
+  }
+
+  private <T> void registerConfigurationTypes(AnnotatedType<T> annotatedType) {
+    for (AnnotatedField<?> field : annotatedType.getFields()) {
+      if (field.isAnnotationPresent(ConfigurationObject.class)) {
+        configurationTypes.add(toClass(field.getBaseType()));
+      }
+    }
+    for (AnnotatedMethod<?> method : annotatedType.getMethods()) {
+      registerConfigurationTypes(method.getParameters());
+    }
+    for (AnnotatedConstructor<?> constructor : annotatedType.getConstructors()) {
+      registerConfigurationTypes(constructor.getParameters());
+    }
+  }
+
+  private <T> void registerConfigurationTypes(List<AnnotatedParameter<T>> parameters) {
+    for (AnnotatedParameter<T> parameter : parameters) {
+      if (parameter.isAnnotationPresent(ConfigurationObject.class)) {
+        configurationTypes.add(toClass(parameter.getBaseType()));
+      }
+    }
+  }
+
+  private boolean isProduceConfigurationBean(Bean<?> bean) {
+    if (bean.getTypes().size() > 1 || !bean.getTypes().contains(Object.class)) {
+      return false;
+    }
+    for (Annotation annotation : bean.getQualifiers()) {
+      if (annotation.annotationType().equals(ConfigurationObject.class)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private <T> Bean<T> createProduceConfigurationBean(Bean<T> bean, Class<?> type) {
+    return new ProduceConfigurationBean<T>(bean, type);
+  }
+
+  private static class ProduceConfigurationBean<T> extends DelegatingBean<T> {
+
+    private Class<?> type;
+
+    public ProduceConfigurationBean(Bean<T> delegateBean, Class<?> aType) {
+      super(delegateBean);
+      type = aType;
+    }
+
+    @Override
+    public Set<Type> getTypes() {
+      return Collections.<Type>singleton(type);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.openknowledge.cdi.common.property.source.PropertyReference;
+import de.openknowledge.cdi.common.property.source.PropertyResolutionPlan;
+
+/**
+ * A handle to a property value that follows reloads of the property source.
+ * Inject it instead of the value itself into long-living beans:
+ * <pre>
+ *   &#064;Inject @Property(name = "timeout", defaultValue = "30") private DynamicProperty&lt;Integer&gt; timeout;
+ * </pre>
+ * The converted value is cached until the source changes, so {@link #get()} does not convert the value again.
+ * Every call of {@link #get()} is counted as read of the property in the {@link PropertyStatistics}.
+ * Any type that can be injected as {@link Property} may be used as type argument.
+ * <p/>
+ * If a reloaded value cannot be converted, the error is logged once and the previous value is kept.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public abstract class DynamicProperty<T> {
+
+  private static final Log LOG = LogFactory.getLog(DynamicProperty.class);
+
+  private PropertyReference reference;
+  private PropertyStatistics statistics;
+  private volatile ConvertedValue<T> current;
+
+  DynamicProperty(PropertyReference aReference, PropertyStatistics someStatistics) {
+    reference = aReference;
+    statistics = someStatistics;
+  }
+
+  /**
+   * @return The current value of the property. May be null.
+   */
+  public T get() {
+    PropertyResolutionPlan plan = reference.getPlan();
+    statistics.recordRead(plan.getKey());
+    ConvertedValue<T> value = current;
+    if (value == null || value.plan != plan) {
+      value = convert(plan, value);
+      current = value;
+    }
+    return value.value;
+  }
+
+  /**
+   * @return The name of the property.
+   */
+  public String getName() {
+    return reference.getPlan().getKey();
+  }
+
+  abstract T convert(String value);
+
+  private ConvertedValue<T> convert(PropertyResolutionPlan plan, ConvertedValue<T> previous) {
+    try {
+      return new ConvertedValue<T>(plan, convert(plan.getValue()));
+    } catch (RuntimeException e) {
+      if (previous == null) {
+        throw e;
+      }
+      LOG.error("Unable to convert property " + plan.getKey() + " from " + plan.getSource()
+        + ". Keeping previous value. " + e.getMessage());
+      // the failed plan is cached with the previous value, so the error is logged only once
+      return new ConvertedValue<T>(plan, previous.value);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "=" + get();
+  }
+
+  private static class ConvertedValue<T> {
+
+    private PropertyResolutionPlan plan;
+    private T value;
+
+    public ConvertedValue(PropertyResolutionPlan aPlan, T aValue) {
+      plan = aPlan;
+      value = aValue;
+    }
+  }
+}
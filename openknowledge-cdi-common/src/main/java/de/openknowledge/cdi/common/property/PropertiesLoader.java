@@ -19,7 +19,10 @@ package de.openknowledge.cdi.common.property;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
@@ -28,7 +31,12 @@ import javax.inject.Inject;
 
 import org.apache.commons.lang.ClassUtils;
 
+import de.openknowledge.cdi.common.property.PropertyConverters.PropertyConverter;
+import de.openknowledge.cdi.common.property.source.DefaultPropertyProvider;
 import de.openknowledge.cdi.common.property.source.PropertyProvider;
+import de.openknowledge.cdi.common.property.source.PropertyReference;
+import de.openknowledge.cdi.common.property.source.PropertyResolutionPlan;
+import de.openknowledge.cdi.common.property.source.PropertySnapshot;
 import de.openknowledge.cdi.common.qualifier.Current;
 
 /**
@@ -48,6 +56,10 @@ public class PropertiesLoader {
   @Inject
   private PropertyProvider provider;
 
+  private PropertyConverters converters = new PropertyConverters();
+
+  private Map<Class<?>, ConfigurationBinder<?>> binders = new ConcurrentHashMap<Class<?>, ConfigurationBinder<?>>();
+
 
   @Produces
   @Property(name = "any")
@@ -56,10 +68,10 @@ public class PropertiesLoader {
   }
 
   /**
-   * Creates an object, assuming the object has a constructor that takes a {@link String} argument.
+   * Creates an object, assuming the object has a constructor that takes a {@link String} argument
+   * or a static <code>valueOf</code> or <code>parse</code> factory method (see {@link PropertyConverters}).
    * The type of the object is determined from the type of the specified injection point.
-   * The value for the constructor argument of type {@link String} is taken from the {@link Property}
-   * specified at the injection point.
+   * The value for the conversion is taken from the {@link Property} specified at the injection point.
    * 
    * @param injectionPoint the injection point to get the type and the property from
    * @return the value which's type depends on the type of the injection point
@@ -71,6 +83,61 @@ public class PropertiesLoader {
     return newInstance(injectionPoint, getPropertyValue(injectionPoint, type), ClassUtils.primitiveToWrapper(type));
   }
 
+  /**
+   * Creates a {@link DynamicProperty} for the specified injection point. The type argument of the injection point
+   * determines the type of the value.
+   * <p/>
+   * Only the {@link DefaultPropertyProvider} supports reloads, for other providers the value is fixed at creation.
+   *
+   * @param injectionPoint the injection point to get the type and the property from
+   * @return the dynamic property
+   */
+  @Produces
+  @Property(name = "any")
+  @SuppressWarnings("unchecked")
+  public <T> DynamicProperty<T> produceDynamicProperty(final InjectionPoint injectionPoint) {
+    final Class<T> type = (Class<T>)getDynamicPropertyType(injectionPoint.getType());
+    PropertyReference reference;
+    if (provider instanceof DefaultPropertyProvider) {
+      reference = ((DefaultPropertyProvider)provider).getPropertyReference(injectionPoint);
+    } else {
+      Property property = injectionPoint.getAnnotated().getAnnotation(Property.class);
+      String value = provider.getPropertyValue(injectionPoint);
+      reference = new PropertyReference(injectionPoint,
+                                        new PropertyResolutionPlan(null, property.name(), value, PropertySnapshot.EMPTY));
+    }
+    currentValues.registerPropertyValue(injectionPoint, reference.getValue());
+    DynamicProperty<T> dynamicProperty = new DynamicProperty<T>(reference, currentValues.getStatistics()) {
+      T convert(String value) {
+        return newInstance(injectionPoint, value, type);
+      }
+    };
+    // fail on injection, if the value cannot be converted
+    dynamicProperty.get();
+    return dynamicProperty;
+  }
+
+  /**
+   * Creates an object bound to all properties starting with the prefix of the {@link ConfigurationObject}
+   * specified at the injection point. The properties are read from the source with a single wildcard query
+   * and bound by the cached {@link ConfigurationBinder} of the injected type.
+   *
+   * @param injectionPoint the injection point to get the type and the prefix from
+   * @return the bound object
+   */
+  @Produces
+  @ConfigurationObject
+  public Object produceConfigurationObject(InjectionPoint injectionPoint) {
+    ConfigurationObject configuration = injectionPoint.getAnnotated().getAnnotation(ConfigurationObject.class);
+    String prefix = configuration.prefix();
+    if (prefix.length() > 0 && !prefix.endsWith(".")) {
+      prefix += '.';
+    }
+    Properties properties = provider.getPropertyValues(new WildcardInjectionPoint(injectionPoint,
+      new PropertyLiteral(prefix + '*', configuration.source())));
+    return getBinder(toClass(injectionPoint.getType())).bind(prefix, properties, currentValues.getStatistics());
+  }
+
   /**
    * Creates a {@link Character} object from the specified injection point.
    * The character value is taken from the {@link Property} specified at the injection point.
@@ -91,6 +158,31 @@ public class PropertiesLoader {
     return value.charAt(0);
   }
 
+  /**
+   * Eagerly loads the property sources of the specified injection points.
+   * Providers other than the {@link DefaultPropertyProvider} keep loading lazily.
+   *
+   * @param injectionPoints the property injection points
+   * @param threads the maximum number of sources to load in parallel
+   */
+  public void preload(Collection<InjectionPoint> injectionPoints, int threads) {
+    preload(injectionPoints, threads, false);
+  }
+
+  /**
+   * Eagerly loads the property sources of the specified injection points.
+   * Providers other than the {@link DefaultPropertyProvider} keep loading lazily.
+   *
+   * @param injectionPoints the property injection points
+   * @param threads the maximum number of sources to load in parallel
+   * @param failOnMissingSources whether missing sources are an error
+   */
+  public void preload(Collection<InjectionPoint> injectionPoints, int threads, boolean failOnMissingSources) {
+    if (provider instanceof DefaultPropertyProvider) {
+      ((DefaultPropertyProvider)provider).preload(injectionPoints, threads, failOnMissingSources);
+    }
+  }
+
   protected String getPropertyValue(InjectionPoint injectionPoint, Class<?> targetType) {
     String value = provider.getPropertyValue(injectionPoint);
     assertPrimitiveNotNull(injectionPoint, value, targetType);
@@ -98,6 +190,23 @@ public class PropertiesLoader {
     return value;
   }
   
+  @SuppressWarnings("unchecked")
+  private <T> ConfigurationBinder<T> getBinder(Class<T> type) {
+    ConfigurationBinder<T> binder = (ConfigurationBinder<T>)binders.get(type);
+    if (binder == null) {
+      binder = new ConfigurationBinder<T>(type, converters);
+      binders.put(type, binder);
+    }
+    return binder;
+  }
+
+  static Class<?> getDynamicPropertyType(Type type) {
+    if (type instanceof ParameterizedType && ((ParameterizedType)type).getRawType() == DynamicProperty.class) {
+      return toClass(((ParameterizedType)type).getActualTypeArguments()[0]);
+    }
+    throw new IllegalArgumentException("unsupported type for dynamic property injection: " + type);
+  }
+
   static Class<?> toClass(Type type) {
     if (type instanceof Class<?>) {
       return (Class<?>)type;
@@ -112,16 +221,21 @@ public class PropertiesLoader {
     if (value == null) {
       return null;
     }
+    PropertyConverter converter = converters.getConverter(type);
+    if (converter == null) {
+      throw new IllegalArgumentException(type.getName()
+        + " must have String-constructor or static valueOf(String) or parse(String) method to be injected");
+    }
     try {
-      return type.getConstructor(String.class).newInstance(value);
-    } catch (NoSuchMethodException e) {
-      throw new IllegalArgumentException(type.getName() + " must have String-constructor to be injected");
+      return type.cast(converter.convert(value));
     } catch (IllegalAccessException e) {
-      throw new IllegalArgumentException("String-constructor must be public");
+      throw new IllegalArgumentException("String-constructor or factory method of " + type.getName() + " must be public");
     } catch (InstantiationException e) {
       throw buildIllegalArgumentException(injectionPoint, value, type, e);
     } catch (InvocationTargetException e) {
       throw buildIllegalArgumentException(injectionPoint, value, type, e.getTargetException());
+    } catch (Exception e) {
+      throw buildIllegalArgumentException(injectionPoint, value, type, e);
     }
   }
   
@@ -135,6 +249,10 @@ public class PropertiesLoader {
                                                          String value,
                                                          Class<?> expectedType,
                                                          Throwable cause) {
+    Property property = injectionPoint.getAnnotated().getAnnotation(Property.class);
+    if (property != null) {
+      currentValues.getStatistics().recordConversionFailure(property.name());
+    }
     StringBuilder messageBuilder = new StringBuilder();
     messageBuilder.append("Unable to convert ");
     if (value == null) {
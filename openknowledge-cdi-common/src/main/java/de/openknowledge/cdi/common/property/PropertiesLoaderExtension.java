@@ -22,7 +22,6 @@ import static org.apache.commons.lang.ClassUtils.wrapperToPrimitive;
 import static org.apache.commons.lang.Validate.notNull;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.HashSet;
@@ -41,11 +40,15 @@ import javax.enterprise.inject.spi.Extension;
 import javax.enterprise.inject.spi.ProcessAnnotatedType;
 import javax.enterprise.inject.spi.ProcessBean;
 
+import de.openknowledge.cdi.common.property.index.PropertyIndex;
 import de.openknowledge.cdi.common.spi.DelegatingBean;
 
 /**
  * This extension enables the injection of any object that has a constructor
- * with a single {@link String} parameter into injection points annotated with {@link Property}.
+ * with a single {@link String} parameter or a static <code>valueOf</code> or <code>parse</code>
+ * factory method into injection points annotated with {@link Property}.
+ * The injection points of types listed in the compile time {@link PropertyIndex}
+ * are taken from the index instead of being scanned.
  * 
  * @author Arne Limburg
  */
@@ -53,10 +56,13 @@ public class PropertiesLoaderExtension implements Extension {
 
   private Set<Class<?>> customTypes = new HashSet<Class<?>>();
   private Bean<?> producePropertyBean;
+  private PropertyIndex index = PropertyIndex.load();
   
   public <T> void registerCustomTypes(@Observes ProcessAnnotatedType<T> annotatedTypeEvent) {
     AnnotatedType<T> annotatedType = annotatedTypeEvent.getAnnotatedType();
-    registerCustomType(annotatedType);
+    if (!registerIndexedCustomType(annotatedType.getJavaClass())) {
+      registerCustomType(annotatedType);
+    }
   }
   
   public void registerProducePropertyBean(@Observes ProcessBean<?> processBeanEvent) {
@@ -72,6 +78,26 @@ public class PropertiesLoaderExtension implements Extension {
     }
   }
   
+  private boolean registerIndexedCustomType(Class<?> type) {
+    if (!index.isIndexed(type)) {
+      return false;
+    }
+    Set<Class<?>> indexedTypes = new HashSet<Class<?>>();
+    for (PropertyIndex.IndexedProperty property : index.getProperties(type)) {
+      try {
+        Class<?> propertyType = property.loadType(type.getClassLoader());
+        if (propertyType != null && isConvertible(propertyType)) {
+          indexedTypes.add(primitiveToWrapper(propertyType));
+        }
+      } catch (ClassNotFoundException e) {
+        // the index does not match the deployed classes, scan the type instead
+        return false;
+      }
+    }
+    customTypes.addAll(indexedTypes);
+    return true;
+  }
+
   private void registerCustomType(AnnotatedType<?> annotatedType) {
     for (AnnotatedField<?> field: annotatedType.getFields()) {
       if (isPropertyInjectionPoint(field)) {
@@ -96,17 +122,11 @@ public class PropertiesLoaderExtension implements Extension {
   
   private static boolean isPropertyInjectionPoint(Annotated annotated) {
     return annotated.isAnnotationPresent(Property.class)
-           && isStringConstructorPresent(annotated.getBaseType());
+           && isConvertible(annotated.getBaseType());
   }
   
-  private static boolean isStringConstructorPresent(Type type) {
-    for (Constructor<?> constructor: primitiveToWrapper(toClass(type)).getConstructors()) {
-      Class<?>[] parameterTypes = constructor.getParameterTypes();
-      if (parameterTypes.length == 1 && String.class.equals(parameterTypes[0])) {
-        return true;
-      }
-    }
-    return false;
+  private static boolean isConvertible(Type type) {
+    return PropertyConverters.isSupported(primitiveToWrapper(toClass(type)));
   }
 
   private boolean isProducePropertyBean(Bean<?> bean) {
@@ -0,0 +1,196 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts property values to the type of an injection point. The converter for a type is
+ * determined once and cached. Types are supported when they provide
+ * <ul>
+ *   <li>a public constructor that takes a single {@link String} argument,</li>
+ *   <li>a public static <code>valueOf(String)</code> method or</li>
+ *   <li>a public static <code>parse(String)</code> or <code>parse(CharSequence)</code> method</li>
+ * </ul>
+ * returning the type, in this order. Strings, the primitive wrappers and
+ * {@link BigDecimal}/{@link BigInteger} are converted without reflection.
+ *
+ * @author Arne Limburg - open knowledge GmbH
+ */
+class PropertyConverters {
+
+  private static final Map<Class<?>, PropertyConverter> BUILT_IN_CONVERTERS
+    = new ConcurrentHashMap<Class<?>, PropertyConverter>();
+
+  /** Caches unsupported types, since the concurrent map does not accept null values. */
+  private static final Object UNSUPPORTED = new Object();
+
+  static {
+    BUILT_IN_CONVERTERS.put(String.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return value;
+      }
+    });
+    BUILT_IN_CONVERTERS.put(Integer.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return Integer.valueOf(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(Long.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return Long.valueOf(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(Short.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return Short.valueOf(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(Byte.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return Byte.valueOf(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(Double.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return Double.valueOf(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(Float.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return Float.valueOf(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(Boolean.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return Boolean.valueOf(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(BigDecimal.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return new BigDecimal(value);
+      }
+    });
+    BUILT_IN_CONVERTERS.put(BigInteger.class, new PropertyConverter() {
+      public Object convert(String value) {
+        return new BigInteger(value);
+      }
+    });
+  }
+
+  private Map<Class<?>, Object> converters = new ConcurrentHashMap<Class<?>, Object>();
+
+  /**
+   * Returns the cached converter for the given type.
+   *
+   * @param type The target type, must not be primitive.
+   * @return The converter or null, if the type is not supported.
+   */
+  public PropertyConverter getConverter(Class<?> type) {
+    Object converter = converters.get(type);
+    if (converter == null) {
+      converter = createConverter(type);
+      if (converter == null) {
+        converter = UNSUPPORTED;
+      }
+      converters.put(type, converter);
+    }
+    return converter != UNSUPPORTED ? (PropertyConverter)converter : null;
+  }
+
+  public static boolean isSupported(Class<?> type) {
+    return createConverter(type) != null;
+  }
+
+  static PropertyConverter createConverter(Class<?> type) {
+    PropertyConverter converter = BUILT_IN_CONVERTERS.get(type);
+    if (converter != null) {
+      return converter;
+    }
+    try {
+      return new ConstructorConverter(type.getConstructor(String.class));
+    } catch (NoSuchMethodException e) {
+      // try factory methods
+    }
+    Method factoryMethod = getFactoryMethod(type, "valueOf", String.class);
+    if (factoryMethod == null) {
+      factoryMethod = getFactoryMethod(type, "parse", String.class);
+    }
+    if (factoryMethod == null) {
+      factoryMethod = getFactoryMethod(type, "parse", CharSequence.class);
+    }
+    return factoryMethod != null ? new FactoryMethodConverter(factoryMethod) : null;
+  }
+
+  private static Method getFactoryMethod(Class<?> type, String name, Class<?> parameterType) {
+    try {
+      Method method = type.getMethod(name, parameterType);
+      if (Modifier.isStatic(method.getModifiers()) && type.isAssignableFrom(method.getReturnType())) {
+        return method;
+      }
+    } catch (NoSuchMethodException e) {
+      // not present
+    }
+    return null;
+  }
+
+  /**
+   * Converts a property value to a certain type.
+   */
+  interface PropertyConverter {
+
+    /**
+     * @param value The property value, never null.
+     * @return The converted value.
+     * @throws Exception if the conversion fails.
+     *         Reflective invocations throw {@link java.lang.reflect.InvocationTargetException}.
+     */
+    Object convert(String value) throws Exception;
+  }
+
+  private static class ConstructorConverter implements PropertyConverter {
+
+    private Constructor<?> constructor;
+
+    public ConstructorConverter(Constructor<?> aConstructor) {
+      constructor = aConstructor;
+    }
+
+    public Object convert(String value) throws Exception {
+      return constructor.newInstance(value);
+    }
+  }
+
+  private static class FactoryMethodConverter implements PropertyConverter {
+
+    private Method factoryMethod;
+
+    public FactoryMethodConverter(Method aFactoryMethod) {
+      factoryMethod = aFactoryMethod;
+    }
+
+    public Object convert(String value) throws Exception {
+      return factoryMethod.invoke(null, value);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import javax.enterprise.util.AnnotationLiteral;
+
+/**
+ * A {@link Property} created at runtime, i.e. to read a wildcard of a {@link ConfigurationObject}.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+class PropertyLiteral extends AnnotationLiteral<Property> implements Property {
+
+  private String name;
+  private String source;
+
+  public PropertyLiteral(String aName, String aSource) {
+    name = aName;
+    source = aSource;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public String defaultValue() {
+    return "";
+  }
+
+  public String source() {
+    return source;
+  }
+
+  public boolean mask() {
+    return false;
+  }
+}
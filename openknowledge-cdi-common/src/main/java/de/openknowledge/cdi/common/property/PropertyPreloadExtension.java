@@ -0,0 +1,86 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.ProcessBean;
+
+/**
+ * Loads all property sources of the known {@link Property} injection points after the deployment
+ * has been validated, instead of loading every source on its first injection. The sources
+ * are loaded in parallel and errors are reported as deployment problems.
+ * <p/>
+ * Preloading is disabled by default and enabled by setting the system property
+ * <code>de.openknowledge.cdi.property.preload</code> to <code>true</code>. The number of
+ * sources that are loaded in parallel is limited by the system property
+ * <code>de.openknowledge.cdi.property.preload.threads</code> and defaults to the
+ * number of available processors.
+ * <p/>
+ * Missing sources are loaded as empty sources by default. Set the system property
+ * <code>de.openknowledge.cdi.property.preload.strict</code> to <code>true</code> to report
+ * missing file, directory and classpath sources as deployment problems instead.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertyPreloadExtension implements Extension {
+
+  public static final String PRELOAD_PROPERTY = "de.openknowledge.cdi.property.preload";
+
+  public static final String PRELOAD_THREADS_PROPERTY = "de.openknowledge.cdi.property.preload.threads";
+
+  public static final String STRICT_PROPERTY = "de.openknowledge.cdi.property.preload.strict";
+
+  private boolean enabled = Boolean.getBoolean(PRELOAD_PROPERTY);
+  private int threads = Integer.getInteger(PRELOAD_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+  private boolean strict = Boolean.getBoolean(STRICT_PROPERTY);
+  private List<InjectionPoint> injectionPoints = new ArrayList<InjectionPoint>();
+
+  public void recordInjectionPoints(@Observes ProcessBean<?> event) {
+    if (!enabled) {
+      return;
+    }
+    for (InjectionPoint injectionPoint : event.getBean().getInjectionPoints()) {
+      if (injectionPoint.getAnnotated() != null && injectionPoint.getAnnotated().isAnnotationPresent(Property.class)) {
+        injectionPoints.add(injectionPoint);
+      }
+    }
+  }
+
+  public void preloadSources(@Observes AfterDeploymentValidation event, BeanManager beanManager) {
+    if (!enabled || injectionPoints.isEmpty()) {
+      return;
+    }
+    Bean<?> bean = beanManager.resolve(beanManager.getBeans(PropertiesLoader.class));
+    PropertiesLoader loader
+      = (PropertiesLoader)beanManager.getReference(bean, PropertiesLoader.class, beanManager.createCreationalContext(bean));
+    try {
+      loader.preload(injectionPoints, threads, strict);
+    } catch (RuntimeException e) {
+      event.addDeploymentProblem(e);
+    } finally {
+      injectionPoints.clear();
+    }
+  }
+}
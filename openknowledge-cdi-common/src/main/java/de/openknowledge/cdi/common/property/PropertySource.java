@@ -53,7 +53,13 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
  *  file://application.properties                - located in file system relative to current application path
  *  file:///etc/application.properties           - located in a unix file system at /etc
  *  file://${config.path}/application.properties - located in ${config.path}. ${config.path} is a java system property.
+ *  dir:/etc/application/conf.d                  - all *.properties files in /etc/application/conf.d, merged by file name
+ *  jdbc:java:comp/env/jdbc/config#application   - namespace application of the properties table of a data source
+ *  system:app.*|application.properties          - system properties starting with app. override the properties
+ *                                                 of application.properties in classpath
  * </pre>
+ * Layered sources are separated by <code>|</code>, the first layer that contains a property wins.
+ * See {@link de.openknowledge.cdi.common.property.source.DefaultPropertyProvider}.
  *
  * @author Jens Schumann - open knowledge GmbH
  * @author Arne Limburg - open knowledge GmbH
@@ -0,0 +1,175 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts property accesses of an application. Records reads per property name, hits and misses
+ * of the resolution cache, load and expansion times per source and conversion failures per
+ * property name. All counters may be updated concurrently and are never reset. The counters of reads,
+ * cache lookups and conversion failures are striped over several cells, so concurrent
+ * injections do not contend on a shared counter.
+ * <p/>
+ * The statistics of an application are available from the {@link de.openknowledge.cdi.common.qualifier.Current}
+ * {@link ApplicationProperties}.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertyStatistics {
+
+  private ConcurrentMap<String, StripedCounter> reads = new ConcurrentHashMap<String, StripedCounter>();
+  private ConcurrentMap<String, StripedCounter> conversionFailures = new ConcurrentHashMap<String, StripedCounter>();
+  private ConcurrentMap<URI, SourceStatistics> sources = new ConcurrentHashMap<URI, SourceStatistics>();
+  private StripedCounter cacheHits = new StripedCounter();
+  private StripedCounter cacheMisses = new StripedCounter();
+
+  public void recordRead(String aPropertyName) {
+    increment(reads, aPropertyName);
+  }
+
+  public void recordCacheHit() {
+    cacheHits.increment();
+  }
+
+  public void recordCacheMiss() {
+    cacheMisses.increment();
+  }
+
+  /**
+   * @param aSource The loaded source.
+   * @param someLoadNanos The time spent reading the source.
+   * @param someExpansionNanos The time spent expanding the placeholders of the source.
+   */
+  public void recordLoad(URI aSource, long someLoadNanos, long someExpansionNanos) {
+    SourceStatistics statistics = sources.get(aSource);
+    if (statistics == null) {
+      statistics = new SourceStatistics();
+      SourceStatistics existingStatistics = sources.putIfAbsent(aSource, statistics);
+      if (existingStatistics != null) {
+        statistics = existingStatistics;
+      }
+    }
+    statistics.record(someLoadNanos, someExpansionNanos);
+  }
+
+  public void recordConversionFailure(String aPropertyName) {
+    increment(conversionFailures, aPropertyName);
+  }
+
+  /**
+   * @return The number of reads per property name, ordered by name.
+   */
+  public Map<String, Long> getReadCounts() {
+    return toCounts(reads);
+  }
+
+  /**
+   * @return The number of failed conversions per property name, ordered by name.
+   */
+  public Map<String, Long> getConversionFailures() {
+    return toCounts(conversionFailures);
+  }
+
+  public Map<URI, SourceStatistics> getSourceStatistics() {
+    return Collections.unmodifiableMap(sources);
+  }
+
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  /**
+   * @return The ratio of cache hits to all cache lookups, 0 if there was no lookup.
+   */
+  public double getCacheHitRatio() {
+    long hits = cacheHits.get();
+    long lookups = hits + cacheMisses.get();
+    return lookups == 0 ? 0 : (double)hits / lookups;
+  }
+
+  private static void increment(ConcurrentMap<String, StripedCounter> counters, String key) {
+    StripedCounter counter = counters.get(key);
+    if (counter == null) {
+      counter = new StripedCounter();
+      StripedCounter existingCounter = counters.putIfAbsent(key, counter);
+      if (existingCounter != null) {
+        counter = existingCounter;
+      }
+    }
+    counter.increment();
+  }
+
+  private static Map<String, Long> toCounts(Map<String, StripedCounter> counters) {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for (Map.Entry<String, StripedCounter> counter : counters.entrySet()) {
+      counts.put(counter.getKey(), counter.getValue().get());
+    }
+    return counts;
+  }
+
+  /**
+   * Load statistics of a single source, including reloads.
+   */
+  public static class SourceStatistics {
+
+    private AtomicLong loads = new AtomicLong();
+    private AtomicLong loadNanos = new AtomicLong();
+    private AtomicLong expansionNanos = new AtomicLong();
+
+    void record(long someLoadNanos, long someExpansionNanos) {
+      loads.incrementAndGet();
+      loadNanos.addAndGet(someLoadNanos);
+      expansionNanos.addAndGet(someExpansionNanos);
+    }
+
+    public long getLoadCount() {
+      return loads.get();
+    }
+
+    /**
+     * @return The total time spent reading the source in milliseconds.
+     */
+    public long getLoadTime() {
+      return TimeUnit.NANOSECONDS.toMillis(loadNanos.get());
+    }
+
+    /**
+     * @return The total time spent expanding the placeholders of the source in milliseconds.
+     */
+    public long getExpansionTime() {
+      return TimeUnit.NANOSECONDS.toMillis(expansionNanos.get());
+    }
+
+    @Override
+    public String toString() {
+      return "loads: " + getLoadCount() + ", load time: " + getLoadTime() + " ms, expansion time: "
+        + getExpansionTime() + " ms";
+    }
+  }
+}
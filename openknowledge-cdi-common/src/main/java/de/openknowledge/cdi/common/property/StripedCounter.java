@@ -0,0 +1,79 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter for frequent concurrent increments and rare reads. An uncontended counter
+ * is a single {@link AtomicLong}. When two threads collide on it, increments are spread over
+ * cells that are selected by the id of the incrementing thread and padded to separate cache lines,
+ * so concurrent readers of properties do not contend on one memory location.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+class StripedCounter {
+
+  private static final int CELLS = cellCount(Runtime.getRuntime().availableProcessors());
+  /** 8 longs are a cache line of 64 bytes. */
+  private static final int PADDING = 8;
+
+  private AtomicLong base = new AtomicLong();
+  private volatile AtomicLongArray cells;
+
+  public void increment() {
+    AtomicLongArray currentCells = cells;
+    if (currentCells == null) {
+      long value = base.get();
+      if (base.compareAndSet(value, value + 1)) {
+        return;
+      }
+      currentCells = createCells();
+    }
+    currentCells.incrementAndGet(((int)Thread.currentThread().getId() & (CELLS - 1)) * PADDING);
+  }
+
+  /**
+   * @return The sum of all increments. Concurrent increments may or may not be included.
+   */
+  public long get() {
+    long sum = base.get();
+    AtomicLongArray currentCells = cells;
+    if (currentCells != null) {
+      for (int i = 0; i < currentCells.length(); i += PADDING) {
+        sum += currentCells.get(i);
+      }
+    }
+    return sum;
+  }
+
+  private synchronized AtomicLongArray createCells() {
+    if (cells == null) {
+      cells = new AtomicLongArray(CELLS * PADDING);
+    }
+    return cells;
+  }
+
+  private static int cellCount(int processors) {
+    int count = 1;
+    while (count < processors && count < 64) {
+      count <<= 1;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Member;
+import java.lang.reflect.Type;
+import java.util.Set;
+
+import javax.enterprise.inject.spi.Annotated;
+import javax.enterprise.inject.spi.AnnotatedField;
+import javax.enterprise.inject.spi.AnnotatedParameter;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import de.openknowledge.cdi.common.spi.DelegatingAnnotatedField;
+import de.openknowledge.cdi.common.spi.DelegatingAnnotatedParameter;
+
+/**
+ * An injection point that looks like a {@link Property} wildcard to the
+ * {@link de.openknowledge.cdi.common.property.source.PropertyProvider}. Member and bean
+ * are those of the original injection point, so the source is resolved for the same bean class.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+class WildcardInjectionPoint implements InjectionPoint {
+
+  private InjectionPoint delegate;
+  private Annotated annotated;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public WildcardInjectionPoint(InjectionPoint injectionPoint, Property wildcard) {
+    delegate = injectionPoint;
+    Annotated delegateAnnotated = injectionPoint.getAnnotated();
+    if (delegateAnnotated instanceof AnnotatedParameter) {
+      AnnotatedParameter parameter = (AnnotatedParameter)delegateAnnotated;
+      annotated = new DelegatingAnnotatedParameter(parameter.getDeclaringCallable(), parameter, wildcard);
+    } else {
+      AnnotatedField field = (AnnotatedField)delegateAnnotated;
+      annotated = new DelegatingAnnotatedField(field.getDeclaringType(), field, wildcard);
+    }
+  }
+
+  public Type getType() {
+    return delegate.getType();
+  }
+
+  public Set<Annotation> getQualifiers() {
+    return delegate.getQualifiers();
+  }
+
+  public Bean<?> getBean() {
+    return delegate.getBean();
+  }
+
+  public Member getMember() {
+    return delegate.getMember();
+  }
+
+  public Annotated getAnnotated() {
+    return annotated;
+  }
+
+  public boolean isDelegate() {
+    return delegate.isDelegate();
+  }
+
+  public boolean isTransient() {
+    return delegate.isTransient();
+  }
+}
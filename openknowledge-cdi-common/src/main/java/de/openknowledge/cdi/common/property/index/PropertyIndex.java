@@ -0,0 +1,214 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.ClassUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The compile time index of {@link de.openknowledge.cdi.common.property.Property} and
+ * {@link de.openknowledge.cdi.common.property.ConfigurationObject} injection points
+ * written by the {@link PropertyIndexProcessor}. The index of all archives in the classpath is merged.
+ * Types that are not indexed (i.e. types of archives that where compiled without the processor)
+ * have to be scanned reflectively.
+ *
+ * @author Arne Limburg - open knowledge GmbH
+ */
+public class PropertyIndex {
+
+  public static final String INDEX_RESOURCE = "META-INF/de.openknowledge.cdi.common.property.index";
+
+  static final String SEPARATOR = "\t";
+  static final String UNSUPPORTED_TYPE = "-";
+  /** Marks the prefix of a configuration object in place of a property name. */
+  static final String CONFIGURATION_OBJECT = "@";
+  /** Marks the name of a masked property. */
+  static final String MASKED = "!";
+
+  private static final Log LOG = LogFactory.getLog(PropertyIndex.class);
+
+  private Map<String, List<IndexedProperty>> indexedTypes;
+  private Map<String, List<IndexedProperty>> configurationObjects;
+  private Set<String> maskedProperties;
+
+  PropertyIndex(Map<String, List<IndexedProperty>> someIndexedTypes,
+                Map<String, List<IndexedProperty>> someConfigurationObjects) {
+    indexedTypes = someIndexedTypes;
+    configurationObjects = someConfigurationObjects;
+    maskedProperties = new HashSet<String>();
+    for (List<IndexedProperty> properties : indexedTypes.values()) {
+      for (IndexedProperty property : properties) {
+        if (property.isMasked()) {
+          maskedProperties.add(property.getName());
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads the index from the context class loader.
+   *
+   * @return The index, may be empty.
+   */
+  public static PropertyIndex load() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    if (classLoader == null) {
+      classLoader = PropertyIndex.class.getClassLoader();
+    }
+    Map<String, List<IndexedProperty>> indexedTypes = new HashMap<String, List<IndexedProperty>>();
+    Map<String, List<IndexedProperty>> configurationObjects = new HashMap<String, List<IndexedProperty>>();
+    try {
+      Enumeration<URL> resources = classLoader.getResources(INDEX_RESOURCE);
+      while (resources.hasMoreElements()) {
+        URL resource = resources.nextElement();
+        LOG.debug("Reading property index " + resource);
+        read(resource, indexedTypes, configurationObjects);
+      }
+    } catch (IOException e) {
+      LOG.warn("Error reading property index, falling back to scanning: " + e.getMessage());
+      indexedTypes.clear();
+      configurationObjects.clear();
+    }
+    return new PropertyIndex(indexedTypes, configurationObjects);
+  }
+
+  private static void read(URL resource,
+                           Map<String, List<IndexedProperty>> indexedTypes,
+                           Map<String, List<IndexedProperty>> configurationObjects) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), "UTF-8"));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.length() == 0 || line.startsWith("#")) {
+          continue;
+        }
+        String[] values = line.split(SEPARATOR);
+        List<IndexedProperty> properties = new ArrayList<IndexedProperty>();
+        List<IndexedProperty> configurationObjectsOfType = new ArrayList<IndexedProperty>();
+        for (int i = 1; i + 1 < values.length; i += 2) {
+          if (values[i].startsWith(CONFIGURATION_OBJECT)) {
+            String prefix = values[i].substring(CONFIGURATION_OBJECT.length());
+            configurationObjectsOfType.add(new IndexedProperty(prefix, values[i + 1]));
+          } else if (values[i].startsWith(MASKED)) {
+            properties.add(new IndexedProperty(values[i].substring(MASKED.length()), values[i + 1], true));
+          } else {
+            properties.add(new IndexedProperty(values[i], values[i + 1]));
+          }
+        }
+        indexedTypes.put(values[0], properties);
+        configurationObjects.put(values[0], configurationObjectsOfType);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  public boolean isEmpty() {
+    return indexedTypes.isEmpty();
+  }
+
+  public boolean isIndexed(Class<?> type) {
+    return indexedTypes.containsKey(type.getName());
+  }
+
+  /**
+   * @param type An indexed type.
+   * @return The property injection points of the type, including the inherited ones.
+   */
+  public List<IndexedProperty> getProperties(Class<?> type) {
+    List<IndexedProperty> properties = indexedTypes.get(type.getName());
+    return properties != null ? properties : Collections.<IndexedProperty>emptyList();
+  }
+
+  /**
+   * @param type An indexed type.
+   * @return The configuration object injection points of the type, including the inherited ones.
+   *         The name of such an injection point is its prefix.
+   */
+  public List<IndexedProperty> getConfigurationObjects(Class<?> type) {
+    List<IndexedProperty> properties = configurationObjects.get(type.getName());
+    return properties != null ? properties : Collections.<IndexedProperty>emptyList();
+  }
+
+  /**
+   * @return The names of all indexed properties that are declared as masked
+   *         (see {@link de.openknowledge.cdi.common.property.Property#mask()}).
+   */
+  public Set<String> getMaskedProperties() {
+    return Collections.unmodifiableSet(maskedProperties);
+  }
+
+  /**
+   * A single indexed injection point.
+   */
+  public static class IndexedProperty {
+
+    private String name;
+    private String typeName;
+    private boolean masked;
+
+    public IndexedProperty(String aName, String aTypeName) {
+      this(aName, aTypeName, false);
+    }
+
+    public IndexedProperty(String aName, String aTypeName, boolean aMasked) {
+      name = aName;
+      typeName = aTypeName;
+      masked = aMasked;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getTypeName() {
+      return typeName;
+    }
+
+    public boolean isMasked() {
+      return masked;
+    }
+
+    /**
+     * Loads the type of the injection point.
+     *
+     * @param classLoader The class loader to use.
+     * @return The type or null, if the type is not supported for property injection (i.e. arrays).
+     * @throws ClassNotFoundException If the type cannot be loaded.
+     */
+    public Class<?> loadType(ClassLoader classLoader) throws ClassNotFoundException {
+      if (UNSUPPORTED_TYPE.equals(typeName)) {
+        return null;
+      }
+      return ClassUtils.getClass(classLoader, typeName);
+    }
+  }
+}
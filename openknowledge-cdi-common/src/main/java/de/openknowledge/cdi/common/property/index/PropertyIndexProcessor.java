@@ -0,0 +1,211 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import de.openknowledge.cdi.common.property.ConfigurationObject;
+import de.openknowledge.cdi.common.property.Property;
+
+/**
+ * An annotation processor that writes an index of all {@link Property} and {@link ConfigurationObject}
+ * injection points of the compiled classes to {@link PropertyIndex#INDEX_RESOURCE}. The processor is registered
+ * as service and thus runs automatically for every compilation that has this library in
+ * its classpath.
+ * <p/>
+ * The processor only runs for compilations that contain one of these annotations.
+ * The index then lists every compiled type, including the types without any {@link Property}
+ * injection point, so the extensions can skip the reflective scan for all indexed types.
+ * An index that already exists in the output directory is merged, so incremental
+ * compilation only replaces the entries of the recompiled types. The properties of the
+ * merged types are collected again, since they include the properties of superclasses
+ * that may have been recompiled, and types that do not exist anymore are removed.
+ *
+ * @author Arne Limburg - open knowledge GmbH
+ */
+@SupportedAnnotationTypes({"de.openknowledge.cdi.common.property.Property",
+                           "de.openknowledge.cdi.common.property.ConfigurationObject"})
+public class PropertyIndexProcessor extends AbstractProcessor {
+
+  private Map<String, List<String>> indexedTypes = new TreeMap<String, List<String>>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+    if (roundEnvironment.processingOver()) {
+      writeIndex();
+    } else {
+      for (Element element : roundEnvironment.getRootElements()) {
+        if (element instanceof TypeElement) {
+          indexType((TypeElement)element);
+        }
+      }
+    }
+    // we never claim any annotation
+    return false;
+  }
+
+  private void indexType(TypeElement type) {
+    if (type.getKind() == ElementKind.ANNOTATION_TYPE) {
+      return;
+    }
+    indexedTypes.put(processingEnv.getElementUtils().getBinaryName(type).toString(), collectProperties(type));
+    for (Element member : type.getEnclosedElements()) {
+      if (member instanceof TypeElement) {
+        indexType((TypeElement)member);
+      }
+    }
+  }
+
+  private List<String> collectProperties(TypeElement type) {
+    List<String> properties = new ArrayList<String>();
+    TypeElement current = type;
+    while (current != null) {
+      for (Element member : current.getEnclosedElements()) {
+        if (member.getKind() == ElementKind.FIELD) {
+          addProperty(properties, member);
+        } else if (member.getKind() == ElementKind.METHOD
+                   || (member.getKind() == ElementKind.CONSTRUCTOR && current == type)) {
+          for (VariableElement parameter : ((ExecutableElement)member).getParameters()) {
+            addProperty(properties, parameter);
+          }
+        }
+      }
+      current = getSuperclass(current);
+    }
+    return properties;
+  }
+
+  private void addProperty(List<String> properties, Element element) {
+    Property property = element.getAnnotation(Property.class);
+    if (property != null) {
+      properties.add(property.mask() ? PropertyIndex.MASKED + property.name() : property.name());
+      properties.add(getTypeName(element.asType()));
+    }
+    ConfigurationObject configurationObject = element.getAnnotation(ConfigurationObject.class);
+    if (configurationObject != null) {
+      properties.add(PropertyIndex.CONFIGURATION_OBJECT + configurationObject.prefix());
+      properties.add(getTypeName(element.asType()));
+    }
+  }
+
+  private String getTypeName(TypeMirror type) {
+    TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+    if (erasure.getKind().isPrimitive()) {
+      return erasure.getKind().name().toLowerCase();
+    } else if (erasure.getKind() == TypeKind.DECLARED) {
+      TypeElement typeElement = (TypeElement)((DeclaredType)erasure).asElement();
+      return processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+    } else {
+      return PropertyIndex.UNSUPPORTED_TYPE;
+    }
+  }
+
+  private TypeElement getSuperclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    TypeElement superType = (TypeElement)((DeclaredType)superclass).asElement();
+    return Object.class.getName().equals(superType.getQualifiedName().toString()) ? null : superType;
+  }
+
+  private void writeIndex() {
+    if (indexedTypes.isEmpty()) {
+      return;
+    }
+    readPreviousIndex();
+    try {
+      FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT,
+                                                                 "",
+                                                                 PropertyIndex.INDEX_RESOURCE);
+      Writer writer = index.openWriter();
+      try {
+        writer.write("# generated by " + getClass().getName() + "\n");
+        for (Map.Entry<String, List<String>> entry : indexedTypes.entrySet()) {
+          writer.write(entry.getKey());
+          for (String value : entry.getValue()) {
+            writer.write(PropertyIndex.SEPARATOR);
+            writer.write(value);
+          }
+          writer.write('\n');
+        }
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                                               "Unable to write property index: " + e.getMessage());
+    }
+  }
+
+  private void readPreviousIndex() {
+    try {
+      FileObject previousIndex = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT,
+                                                                      "",
+                                                                      PropertyIndex.INDEX_RESOURCE);
+      BufferedReader reader = new BufferedReader(previousIndex.openReader(true));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.length() == 0 || line.startsWith("#")) {
+            continue;
+          }
+          String typeName = line.split(PropertyIndex.SEPARATOR)[0];
+          if (!indexedTypes.containsKey(typeName)) {
+            // the binary name of nested types contains '$'
+            TypeElement type = processingEnv.getElementUtils().getTypeElement(typeName.replace('$', '.'));
+            if (type != null) {
+              indexedTypes.put(typeName, collectProperties(type));
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      // no previous index, i.e. full build
+    }
+  }
+}
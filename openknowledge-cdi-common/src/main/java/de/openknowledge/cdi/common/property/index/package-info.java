@@ -0,0 +1,25 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compile time index of {@link de.openknowledge.cdi.common.property.Property} injection points.
+ * <p/>
+ * The {@link de.openknowledge.cdi.common.property.index.PropertyIndexProcessor} runs automatically
+ * during compilation and writes the index to <code>META-INF/de.openknowledge.cdi.common.property.index</code>.
+ * When the index is present, the property extensions use it instead of scanning every processed type.
+ *
+ */
+package de.openknowledge.cdi.common.property.index;
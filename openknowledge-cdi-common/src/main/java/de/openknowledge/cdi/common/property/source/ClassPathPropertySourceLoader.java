@@ -16,9 +16,13 @@
 
 package de.openknowledge.cdi.common.property.source;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.Properties;
 
 import org.apache.commons.logging.Log;
@@ -39,6 +43,8 @@ public class ClassPathPropertySourceLoader extends AbstractPropertySourceLoader
 
   private static final Log LOG = LogFactory.getLog(ClassPathPropertySourceLoader.class);
 
+  private static final String JAR_SEPARATOR = "!/";
+
   @Override
   public boolean supports(URI source) {
     return source.getScheme() == null || CLASSPATH_SCHEME.equals(source.getScheme());
@@ -61,4 +67,35 @@ public class ClassPathPropertySourceLoader extends AbstractPropertySourceLoader
     }
     return properties;
   }
+
+  /**
+   * @param resource The resource.
+   * @return The url of the resource or null, if the resource does not exist.
+   */
+  protected URL getResource(URI resource) {
+    return Thread.currentThread().getContextClassLoader().getResource(resource.getPath().substring(1));
+  }
+
+  /**
+   * Determines the file a resource is loaded from. For resources in a jar file that is the jar file.
+   *
+   * @param resource The resource.
+   * @return The file or null, if the resource does not exist or is not located in the file system.
+   */
+  protected File toFile(URI resource) {
+    URL url = getResource(resource);
+    try {
+      if (url != null && "jar".equals(url.getProtocol())) {
+        url = new URL(url.getPath().substring(0, url.getPath().indexOf(JAR_SEPARATOR)));
+      }
+      if (url != null && "file".equals(url.getProtocol())) {
+        return new File(url.toURI());
+      }
+    } catch (MalformedURLException e) {
+      LOG.debug("Unable to locate file of classpath resource " + resource + ": " + e.getMessage());
+    } catch (URISyntaxException e) {
+      LOG.debug("Unable to locate file of classpath resource " + resource + ": " + e.getMessage());
+    }
+    return null;
+  }
 }
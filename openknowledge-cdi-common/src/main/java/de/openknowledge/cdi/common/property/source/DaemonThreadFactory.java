@@ -0,0 +1,56 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the numbered daemon threads of the background tasks of the property sources.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+  private String name;
+  private ClassLoader contextClassLoader;
+  private int count;
+
+  /**
+   * @param aName The prefix of the thread names.
+   */
+  public DaemonThreadFactory(String aName) {
+    this(aName, null);
+  }
+
+  /**
+   * @param aName The prefix of the thread names.
+   * @param aContextClassLoader The context class loader of the threads or null to inherit it from the creating thread.
+   */
+  public DaemonThreadFactory(String aName, ClassLoader aContextClassLoader) {
+    name = aName;
+    contextClassLoader = aContextClassLoader;
+  }
+
+  public synchronized Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, name + "-" + ++count);
+    thread.setDaemon(true);
+    if (contextClassLoader != null) {
+      thread.setContextClassLoader(contextClassLoader);
+    }
+    return thread;
+  }
+}
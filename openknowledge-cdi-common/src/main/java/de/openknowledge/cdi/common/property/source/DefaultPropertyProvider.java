@@ -17,23 +17,49 @@
 package de.openknowledge.cdi.common.property.source;
 
 import java.beans.Introspector;
+import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.PostConstruct;
+import javax.enterprise.event.Event;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
 import javax.enterprise.inject.spi.InjectionPoint;
 import javax.inject.Inject;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import de.openknowledge.cdi.common.annotation.Order;
+import de.openknowledge.cdi.common.property.ApplicationProperties;
 import de.openknowledge.cdi.common.property.Property;
 import de.openknowledge.cdi.common.property.PropertySource;
+import de.openknowledge.cdi.common.property.PropertyStatistics;
+import de.openknowledge.cdi.common.property.index.PropertyIndex;
+import de.openknowledge.cdi.common.qualifier.Current;
+import de.openknowledge.cdi.common.qualifier.Updated;
 
 /**
  * Default implementation of our property provider. The default implementation
@@ -48,8 +74,32 @@ import de.openknowledge.cdi.common.property.PropertySource;
  * <p/>
  * Source names  may contain system properties (e.g. ${java.io.tmpdir}} and
  * will be automatically replaced before starting the internal loader lookup and property retrieval.
+ * System properties and environment variables are captured when the provider is created,
+ * call {@link #refreshEnvironment()} to pick up changes.
  * <p/>
  * Property files may contain self references to properties from the same property source or system properties.
+ * Every property file is expanded in a single pass when it is loaded. Cyclic references are rejected.
+ * <p/>
+ * Sources loaded by a {@link de.openknowledge.cdi.common.property.source.ReloadablePropertySourceLoader}
+ * are reloaded when they change. Changes are published as {@link de.openknowledge.cdi.common.qualifier.Updated}
+ * {@link de.openknowledge.cdi.common.property.source.PropertySourceChange} event.
+ * <p/>
+ * A source may consist of several layers separated by <code>|</code>, i.e.
+ * <code>env:*|system:app.*|file://${config.path}/app.properties|/app.properties</code>.
+ * Every layer is loaded by its {@link de.openknowledge.cdi.common.property.source.PropertySourceLoader}
+ * and the first layer that contains a property wins. The layers are merged into a single
+ * snapshot when the source is loaded, so a lookup does not have to walk the layers.
+ * <p/>
+ * Expanded sources that are loaded from files may be stored on disk by setting the system property
+ * <code>de.openknowledge.cdi.property.snapshot.dir</code> to a directory.
+ * See {@link de.openknowledge.cdi.common.property.source.PropertySnapshotStore}. Sources with masked properties
+ * are not stored. Masked properties are taken from the compile time
+ * {@link de.openknowledge.cdi.common.property.index.PropertyIndex} and the preloaded injection points
+ * before any source is stored. A stored source is removed, when a masked property of a type
+ * that is not indexed is injected later.
+ * <p/>
+ * Reads, resolution cache hits and load times are counted in the {@link PropertyStatistics}
+ * of the {@link Current} {@link ApplicationProperties}.
  *
  * @author Arne Limburg - open knowledge GmbH
  * @author Jens Schumann - open knowledge GmbH
@@ -61,70 +111,175 @@ public class DefaultPropertyProvider implements PropertyProvider {
   public static final String PROPERTIES_FILE_EXTENSION = ".properties";
 
   public static final String CLASSPATH_SCHEME = "classpath";
+
+  public static final String LAYERED_SCHEME = "layered";
+
+  public static final String LAYER_SEPARATOR = "|";
+
+  private static final Log LOG = LogFactory.getLog(DefaultPropertyProvider.class);
+
+  private static final URI NO_SOURCE = URI.create("");
 	
   @Inject
   @Any
   private Instance<PropertySourceLoader> supportedSources;
 
-  private Map<URI, Properties> properties = new ConcurrentHashMap<URI, Properties>();
-  private Map<InjectionPoint, URI> sourceNameMap = new ConcurrentHashMap<InjectionPoint, URI>();
+  @Inject
+  @Updated
+  private Event<PropertySourceChange> updateEvent;
+
+  @Inject
+  @Current
+  private ApplicationProperties applicationProperties;
+
+  private Map<URI, PropertySnapshot> snapshots = new ConcurrentHashMap<URI, PropertySnapshot>();
+  private ConcurrentMap<URI, Future<PropertySnapshot>> pendingLoads
+    = new ConcurrentHashMap<URI, Future<PropertySnapshot>>();
+  private Map<String, PlaceholderTemplate> templates = new ConcurrentHashMap<String, PlaceholderTemplate>();
+  private ConcurrentMap<InjectionPointKey, PropertyResolutionPlan> resolutionPlans
+    = new ConcurrentHashMap<InjectionPointKey, PropertyResolutionPlan>();
+  private ConcurrentMap<InjectionPointKey, PropertyReference> references
+    = new ConcurrentHashMap<InjectionPointKey, PropertyReference>();
+  private Map<Class<?>, URI> classSources = new ConcurrentHashMap<Class<?>, URI>();
+  private Map<String, URI> packageSources = new ConcurrentHashMap<String, URI>();
 
   private List<PropertySourceLoader> sourceLoaders = new ArrayList<PropertySourceLoader>();
+  private PropertySnapshotStore snapshotStore;
+  private Set<String> maskedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private volatile EnvironmentSnapshot environment = EnvironmentSnapshot.capture();
+  private PropertyStatistics statistics = new PropertyStatistics();
 
   public String getPropertyValue(InjectionPoint injectionPoint) {
-  
-    Property property = injectionPoint.getAnnotated().getAnnotation(Property.class);
-
-    Properties properties = getProperties(getSource(injectionPoint, property));
-
-    return properties.getProperty(property.name(), getDefaultValue(properties, property));
-
+    PropertyResolutionPlan plan = getResolutionPlan(injectionPoint);
+    statistics.recordRead(plan.getKey());
+    return plan.getValue();
   }
 
   public Properties getPropertyValues(InjectionPoint wildCard) {
-    // TODO cache it.
-    Property property = wildCard.getAnnotated().getAnnotation(Property.class);
-    String wildcardName = property.name();
+    PropertyResolutionPlan plan = getResolutionPlan(wildCard);
+    String wildcardName = plan.getKey();
+    statistics.recordRead(wildcardName);
     if (!wildcardName.endsWith("*")) {
       throw new IllegalArgumentException("You need to specify a wildcard to access properties. Missing wildcard in " +
         wildcardName);
     }
 
-    URI source = getSource(wildCard, property);
+    String keyPrefix = wildcardName.substring(0, wildcardName.length() - 1);
 
+    // the cached index result is shared, so we hand out a copy as Properties
     Properties p = new Properties();
+    p.putAll(plan.getSnapshot().getPrefixIndex().getProperties(keyPrefix));
+    return p;
+  }
 
-    if (source != null) {
-      String keyPrefix = wildcardName.substring(0, wildcardName.length() - 1);
-      Properties allProperties = getProperties(source);
-      for (Object o : allProperties.keySet()) {
-        if (String.valueOf(o).startsWith(keyPrefix)) {
-          p.put(o, allProperties.get(o));
-        }
+  public PropertyStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Captures the current system properties and environment variables. Sources and default
+   * values of all injection points are resolved again. Loaded sources are not reloaded.
+   */
+  public void refreshEnvironment() {
+    environment = EnvironmentSnapshot.capture();
+    classSources.clear();
+    packageSources.clear();
+    resolutionPlans.clear();
+    for (PropertyReference reference : references.values()) {
+      updateReference(reference);
+    }
+  }
+
+  /**
+   * Returns a reference to the value of the specified injection point. The reference
+   * is updated when the source of the property is reloaded.
+   *
+   * @param injectionPoint The injection point.
+   * @return The reference, shared by all injection points of the same member and bean class.
+   */
+  public PropertyReference getPropertyReference(InjectionPoint injectionPoint) {
+    InjectionPointKey key = new InjectionPointKey(injectionPoint);
+    PropertyReference reference = references.get(key);
+    if (reference == null) {
+      reference = new PropertyReference(injectionPoint, getResolutionPlan(injectionPoint));
+      PropertyReference existingReference = references.putIfAbsent(key, reference);
+      if (existingReference != null) {
+        reference = existingReference;
+      } else if (!isCurrent(reference.getPlan())) {
+        // the source was reloaded before the reference was registered
+        updateReference(reference);
       }
     }
+    return reference;
+  }
 
-    return p;
+  /**
+   * Returns the resolution plan for the specified injection point. The plan is compiled
+   * on first access and reused for all subsequent injections into the same member of the same bean class,
+   * i.e. all instances of a dependent bean share the plan. A plan that was compiled from
+   * an outdated snapshot of its source is compiled again, so a plan that was compiled
+   * concurrently to a reload is never used after the reload.
+   *
+   * @param injectionPoint The injection point.
+   * @return The resolution plan.
+   */
+  protected PropertyResolutionPlan getResolutionPlan(InjectionPoint injectionPoint) {
+    InjectionPointKey key = new InjectionPointKey(injectionPoint);
+    PropertyResolutionPlan plan = resolutionPlans.get(key);
+    if (plan != null && isCurrent(plan)) {
+      statistics.recordCacheHit();
+      return plan;
+    }
+    statistics.recordCacheMiss();
+    PropertyResolutionPlan compiledPlan;
+    do {
+      compiledPlan = compileResolutionPlan(injectionPoint);
+    } while (!isCurrent(compiledPlan));
+    if (plan == null) {
+      resolutionPlans.putIfAbsent(key, compiledPlan);
+    } else {
+      resolutionPlans.replace(key, plan, compiledPlan);
+    }
+    return compiledPlan;
+  }
+
+  /**
+   * Updates the plan of the given reference. Concurrent reloads may update the reference
+   * in any order, so the plan is compiled again until the reference holds a current plan.
+   */
+  protected void updateReference(PropertyReference reference) {
+    do {
+      reference.update(getResolutionPlan(reference.getInjectionPoint()));
+    } while (!isCurrent(reference.getPlan()));
+  }
+
+  /**
+   * @return <code>true</code>, if the plan was compiled from the current snapshot of its source.
+   */
+  protected boolean isCurrent(PropertyResolutionPlan plan) {
+    return plan.getSnapshot() == snapshots.get(plan.getSource());
+  }
+
+  protected PropertyResolutionPlan compileResolutionPlan(InjectionPoint injectionPoint) {
+    Property property = injectionPoint.getAnnotated().getAnnotation(Property.class);
+    URI source = getSource(injectionPoint, property);
+    if (property.mask() && maskedKeys.add(property.name()) && snapshotStore != null) {
+      // the source may have been stored before the masked property was known
+      snapshotStore.remove(source);
+    }
+    PropertySnapshot snapshot = getSnapshot(source);
+    return new PropertyResolutionPlan(source, property.name(), getDefaultValue(snapshot, property), snapshot);
   }
   
-  protected String getDefaultValue(Properties properties, Property property) {
+  protected String getDefaultValue(PropertySnapshot snapshot, Property property) {
     if (property.defaultValue().length() == 0) {
       return null;
     }
-    return expandPropertyValue(properties, property.defaultValue());
+    return expandPropertyValue(snapshot, property.defaultValue());
   }
 
   protected URI getSource(InjectionPoint aInjectionPoint, Property property) {
-    if (sourceNameMap.containsKey(aInjectionPoint)) {
-      return sourceNameMap.get(aInjectionPoint);
-    }
-
-    URI source = extractSource(aInjectionPoint, property);
-    if (source != null) {
-      sourceNameMap.put(aInjectionPoint, source);
-    }
-
-    return source;
+    return extractSource(aInjectionPoint, property);
   }
 
   protected URI extractSource(InjectionPoint injectionPoint, Property property) {
@@ -132,15 +287,32 @@ public class DefaultPropertyProvider implements PropertyProvider {
     if (propertySource != null) {
       return propertySource;
     }
-    URI classSource = extractSourceFromClass(injectionPoint.getBean().getBeanClass());
+    return getBeanClassSource(injectionPoint.getBean().getBeanClass());
+  }
+
+  /**
+   * Returns the source of all injection points of the given bean class that do not specify
+   * a source. The source is resolved once per class.
+   */
+  protected URI getBeanClassSource(Class<?> beanClass) {
+    URI source = classSources.get(beanClass);
+    if (source == null) {
+      source = extractBeanClassSource(beanClass);
+      classSources.put(beanClass, source);
+    }
+    return source;
+  }
+
+  protected URI extractBeanClassSource(Class<?> beanClass) {
+    URI classSource = extractSourceFromClass(beanClass);
     if (classSource != null) {
       return classSource;
     }
-    URI packageSource = extractSourceFromPackage(injectionPoint.getBean().getBeanClass().getPackage().getName());
+    URI packageSource = extractSourceFromPackage(beanClass.getPackage().getName());
     if (packageSource != null) {
       return packageSource;
     }
-    return extractDefaultSource(injectionPoint.getBean().getBeanClass());
+    return extractDefaultSource(beanClass);
   }
 
   protected URI extractFromProperty(InjectionPoint injectionPoint, Property property) {
@@ -157,18 +329,29 @@ public class DefaultPropertyProvider implements PropertyProvider {
     return toUri(beanClass.getPackage(), beanClass.getAnnotation(PropertySource.class).value());
   }
 
+  /**
+   * Returns the source of the given package or its nearest parent package. The result is cached
+   * for every visited package, so the package hierarchy is walked only once.
+   */
   protected URI extractSourceFromPackage(String packageName) {
+    URI source = packageSources.get(packageName);
+    if (source != null) {
+      return source != NO_SOURCE ? source : null;
+    }
     Package pkg = Package.getPackage(packageName);
     if (pkg != null && pkg.isAnnotationPresent(PropertySource.class)) {
-      return toUri(pkg, pkg.getAnnotation(PropertySource.class).value());
+      source = toUri(pkg, pkg.getAnnotation(PropertySource.class).value());
     } else {
       int index = packageName.lastIndexOf('.');
       if (index > 0) {
-        return extractSourceFromPackage(packageName.substring(0, index));
-      } else {
-        return null;
+        source = extractSourceFromPackage(packageName.substring(0, index));
       }
     }
+    if (pkg != null) {
+      // packages without loaded classes are not defined yet and may be defined later
+      packageSources.put(packageName, source != null ? source : NO_SOURCE);
+    }
+    return source;
   }
 
   protected URI extractDefaultSource(Class<?> beanClass) {
@@ -177,6 +360,9 @@ public class DefaultPropertyProvider implements PropertyProvider {
   }
 
   protected URI toUri(Package pkg, String source) {
+    if (source.contains(LAYER_SEPARATOR)) {
+      return toLayeredUri(pkg, source);
+    }
     source = expandSourceSystemProperties(source);
     try {
       URI uri = new URI(source);
@@ -195,6 +381,37 @@ public class DefaultPropertyProvider implements PropertyProvider {
     }
   }
   
+  /**
+   * Creates a single URI for a layered source. The layers are resolved individually and
+   * joined in the scheme specific part of a <code>layered</code> URI.
+   */
+  protected URI toLayeredUri(Package pkg, String source) {
+    StringBuilder layers = new StringBuilder();
+    for (String layer : StringUtils.split(source, LAYER_SEPARATOR)) {
+      if (layers.length() > 0) {
+        layers.append(LAYER_SEPARATOR);
+      }
+      layers.append(toUri(pkg, layer.trim()));
+    }
+    try {
+      return new URI(LAYERED_SCHEME, layers.toString(), null);
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * @param layeredSource A source created by {@link #toLayeredUri(Package, String)}.
+   * @return The layers of the source, beginning with the highest precedence.
+   */
+  protected List<URI> getLayers(URI layeredSource) {
+    List<URI> layers = new ArrayList<URI>();
+    for (String layer : StringUtils.split(layeredSource.getSchemeSpecificPart(), LAYER_SEPARATOR)) {
+      layers.add(URI.create(layer));
+    }
+    return layers;
+  }
+
   protected String resolve(Package pkg, String path) {
     if (isAbsolute(path)) {
       return path;
@@ -214,83 +431,476 @@ public class DefaultPropertyProvider implements PropertyProvider {
     return source.charAt(0) == '/';
   }
 
-  protected Properties getProperties(URI source) {
-    Properties p = properties.get(source);
-    return p != null ? p : loadPropertiesFromLoader(source);
+  protected PropertySnapshot getSnapshot(URI source) {
+    PropertySnapshot snapshot = snapshots.get(source);
+    return snapshot != null ? snapshot : loadSnapshot(source);
   }
 
+  /**
+   * Loads the properties of the given source. Concurrent requests for the same source
+   * share a single load while different sources are loaded in parallel.
+   */
+  protected PropertySnapshot loadSnapshot(final URI source) {
+    FutureTask<PropertySnapshot> load = new FutureTask<PropertySnapshot>(new Callable<PropertySnapshot>() {
+      public PropertySnapshot call() {
+        // another thread may have completed the load after our cache miss
+        PropertySnapshot snapshot = snapshots.get(source);
+        if (snapshot == null) {
+          snapshot = loadPropertiesFromLoader(source);
+          snapshots.put(source, snapshot);
+        }
+        return snapshot;
+      }
+    });
+    Future<PropertySnapshot> pendingLoad = pendingLoads.putIfAbsent(source, load);
+    if (pendingLoad == null) {
+      pendingLoad = load;
+      try {
+        load.run();
+      } finally {
+        pendingLoads.remove(source, load);
+      }
+    }
+    try {
+      return pendingLoad.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading properties from " + source, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error)e.getCause();
+      }
+      throw new IllegalStateException("Unable to load properties from " + source, e.getCause());
+    }
+  }
 
-  protected synchronized Properties loadPropertiesFromLoader(URI source) {
-    for (PropertySourceLoader sourceLoader : sourceLoaders) {
-      if (sourceLoader.supports(source)) {
-        Properties p = sourceLoader.load(source);
-        for (Object key : p.keySet()) {
-          p.put(key, expandPropertyValue(p, String.valueOf(p.get(key))));
+
+  /**
+   * Eagerly loads the sources of the given injection points and compiles their resolution plans.
+   *
+   * @param injectionPoints The property injection points.
+   * @param threads The maximum number of sources to load in parallel.
+   * @throws RuntimeException The first error that occurred while loading a source.
+   */
+  public void preload(Collection<InjectionPoint> injectionPoints, int threads) {
+    preload(injectionPoints, threads, false);
+  }
+
+  /**
+   * Eagerly loads the sources of the given injection points and compiles their resolution plans.
+   *
+   * @param injectionPoints The property injection points.
+   * @param threads The maximum number of sources to load in parallel.
+   * @param failOnMissingSources Whether missing sources are an error instead of being loaded as empty sources.
+   * @throws IllegalStateException If a source is missing and <code>failOnMissingSources</code> is set.
+   * @throws RuntimeException The first error that occurred while loading a source.
+   */
+  public void preload(Collection<InjectionPoint> injectionPoints, int threads, boolean failOnMissingSources) {
+    Set<URI> sources = new LinkedHashSet<URI>();
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      Property property = injectionPoint.getAnnotated().getAnnotation(Property.class);
+      if (property != null) {
+        sources.add(getSource(injectionPoint, property));
+        if (property.mask()) {
+          // masked properties have to be known before their sources are stored
+          maskedKeys.add(property.name());
         }
+      }
+    }
+    if (failOnMissingSources) {
+      assertSourcesExist(sources);
+    }
+    preloadSources(sources, threads);
+    for (InjectionPoint injectionPoint : injectionPoints) {
+      if (injectionPoint.getAnnotated().isAnnotationPresent(Property.class)) {
+        getResolutionPlan(injectionPoint);
+      }
+    }
+  }
 
-        // cache result
-        properties.put(source, p);
-        return p;
+  /**
+   * Loads and expands the given sources in parallel on a bounded pool and logs
+   * the load time of every source.
+   *
+   * @param sources The sources to load.
+   * @param threads The maximum number of sources to load in parallel.
+   * @return The load time of every source in milliseconds.
+   * @throws RuntimeException The first error that occurred while loading a source.
+   */
+  protected Map<URI, Long> preloadSources(Collection<URI> sources, int threads) {
+    Map<URI, Long> loadTimes = new LinkedHashMap<URI, Long>();
+    if (sources.isEmpty()) {
+      return loadTimes;
+    }
+    long start = System.nanoTime();
+    // sources may be loaded from the classpath of the deploying thread
+    ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, sources.size())),
+                                                            new DaemonThreadFactory("property-preload", contextClassLoader));
+    try {
+      Map<URI, Future<Long>> loads = new LinkedHashMap<URI, Future<Long>>();
+      for (final URI source : sources) {
+        loads.put(source, executor.submit(new Callable<Long>() {
+          public Long call() {
+            long loadStart = System.nanoTime();
+            getSnapshot(source);
+            return (System.nanoTime() - loadStart) / 1000000;
+          }
+        }));
+      }
+      RuntimeException error = null;
+      for (Map.Entry<URI, Future<Long>> load : loads.entrySet()) {
+        try {
+          loadTimes.put(load.getKey(), load.getValue().get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while preloading properties", e);
+        } catch (ExecutionException e) {
+          LOG.error("Unable to preload properties from " + load.getKey() + ": " + e.getCause().getMessage());
+          if (error == null) {
+            error = e.getCause() instanceof RuntimeException
+              ? (RuntimeException)e.getCause()
+              : new IllegalStateException("Unable to load properties from " + load.getKey(), e.getCause());
+          }
+        }
+      }
+      if (error != null) {
+        throw error;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    if (LOG.isInfoEnabled()) {
+      StringBuilder report = new StringBuilder("Preloaded ").append(sources.size()).append(" property sources in ")
+        .append((System.nanoTime() - start) / 1000000).append(" ms:");
+      for (Map.Entry<URI, Long> loadTime : loadTimes.entrySet()) {
+        report.append("\n  ").append(loadTime.getKey()).append(": ").append(loadTime.getValue()).append(" ms");
+      }
+      LOG.info(report);
+    }
+    return loadTimes;
+  }
+
+  protected PropertyPrefixIndex getPrefixIndex(URI source) {
+    return getSnapshot(source).getPrefixIndex();
+  }
+
+  protected PropertySnapshot loadPropertiesFromLoader(URI source) {
+    long start = System.nanoTime();
+    List<File> files = snapshotStore != null ? getSourceFiles(source) : null;
+    if (files == null) {
+      Properties properties = readProperties(source, source, true);
+      long loaded = System.nanoTime();
+      PropertySnapshot snapshot = expandProperties(properties);
+      statistics.recordLoad(source, loaded - start, System.nanoTime() - loaded);
+      return snapshot;
+    }
+    PropertySnapshotStore.Fingerprint fingerprint = snapshotStore.fingerprint(files);
+    PropertySnapshot snapshot = snapshotStore.read(source, fingerprint, new PlaceholderTemplate.Resolver() {
+      public String resolve(String placeholder) {
+        return replaceProperty(PropertySnapshot.EMPTY, placeholder);
+      }
+    });
+    if (snapshot != null) {
+      watchProperties(source, source);
+      PropertySnapshotStore.Fingerprint watchedFingerprint = snapshotStore.fingerprint(files);
+      if (watchedFingerprint.equals(fingerprint)) {
+        statistics.recordLoad(source, System.nanoTime() - start, 0);
+        return snapshot;
+      }
+      // the files have changed before they were watched
+      fingerprint = watchedFingerprint;
+    }
+    Map<String, String> externalReferences = new HashMap<String, String>();
+    Properties properties = readProperties(source, source, true);
+    long loaded = System.nanoTime();
+    snapshot = expandProperties(properties, externalReferences);
+    statistics.recordLoad(source, loaded - start, System.nanoTime() - loaded);
+    snapshotStore.write(source, fingerprint, properties, externalReferences, snapshot, maskedKeys);
+    return snapshot;
+  }
+
+  /**
+   * Determines the files a source is loaded from.
+   *
+   * @param source The source.
+   * @return The files or null, if the source is not completely loaded from files.
+   */
+  protected List<File> getSourceFiles(URI source) {
+    List<File> files = new ArrayList<File>();
+    if (LAYERED_SCHEME.equals(source.getScheme())) {
+      for (URI layer : getLayers(source)) {
+        List<File> layerFiles = getSourceFiles(layer);
+        if (layerFiles == null) {
+          return null;
+        }
+        files.addAll(layerFiles);
+      }
+      return files;
+    }
+    PropertySourceLoader sourceLoader = getSourceLoader(source);
+    File file = null;
+    if (sourceLoader instanceof FilePropertySourceLoader) {
+      file = ((FilePropertySourceLoader)sourceLoader).toFile(source);
+    } else if (sourceLoader instanceof ClassPathPropertySourceLoader) {
+      file = ((ClassPathPropertySourceLoader)sourceLoader).toFile(source);
+    } else if (sourceLoader instanceof DirectoryPropertySourceLoader) {
+      DirectoryPropertySourceLoader directoryLoader = (DirectoryPropertySourceLoader)sourceLoader;
+      files.addAll(directoryLoader.listFiles(directoryLoader.toDirectory(source)));
+      file = directoryLoader.toDirectory(source);
+    }
+    if (file == null) {
+      return null;
+    }
+    files.add(file);
+    return files;
+  }
+
+  /**
+   * Registers a source, that was not read by {@link #readProperties(URI, URI, boolean)}, for reloading.
+   */
+  protected void watchProperties(URI logicalSource, URI source) {
+    if (LAYERED_SCHEME.equals(source.getScheme())) {
+      for (URI layer : getLayers(source)) {
+        watchProperties(logicalSource, layer);
+      }
+      return;
+    }
+    PropertySourceLoader sourceLoader = getSourceLoader(source);
+    if (sourceLoader instanceof ReloadablePropertySourceLoader) {
+      ((ReloadablePropertySourceLoader)sourceLoader).watch(source, new SourceReloader(logicalSource));
+    }
+  }
+
+  /**
+   * @throws IllegalStateException If one of the given sources does not exist.
+   */
+  protected void assertSourcesExist(Collection<URI> sources) {
+    List<URI> missingSources = new ArrayList<URI>();
+    for (URI source : sources) {
+      if (!exists(source)) {
+        missingSources.add(source);
+      }
+    }
+    if (!missingSources.isEmpty()) {
+      throw new IllegalStateException("Missing property sources " + missingSources);
+    }
+  }
+
+  /**
+   * Determines whether a source exists. Sources that are not loaded from files or the classpath
+   * are assumed to exist. A layered source exists, if one of its layers exists.
+   */
+  protected boolean exists(URI source) {
+    if (LAYERED_SCHEME.equals(source.getScheme())) {
+      for (URI layer : getLayers(source)) {
+        if (exists(layer)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    PropertySourceLoader sourceLoader = getSourceLoader(source);
+    if (sourceLoader instanceof FilePropertySourceLoader) {
+      return ((FilePropertySourceLoader)sourceLoader).toFile(source).isFile();
+    } else if (sourceLoader instanceof ClassPathPropertySourceLoader) {
+      return ((ClassPathPropertySourceLoader)sourceLoader).getResource(source) != null;
+    } else if (sourceLoader instanceof DirectoryPropertySourceLoader) {
+      DirectoryPropertySourceLoader directoryLoader = (DirectoryPropertySourceLoader)sourceLoader;
+      return directoryLoader.toDirectory(source).isDirectory();
+    }
+    return true;
+  }
+
+  protected PropertySourceLoader getSourceLoader(URI source) {
+    for (PropertySourceLoader sourceLoader : sourceLoaders) {
+      if (sourceLoader.supports(source)) {
+        return sourceLoader;
       }
     }
     throw new IllegalArgumentException("Unsupported source reference " + source);
   }
 
+  /**
+   * Reads the unexpanded properties of a source. Layered sources are merged.
+   *
+   * @param logicalSource The source that is reloaded, when a watched layer changes.
+   * @param source The source or layer to read.
+   * @param watch Whether to watch the source for changes.
+   * @return The properties.
+   */
+  protected Properties readProperties(URI logicalSource, URI source, boolean watch) {
+    if (LAYERED_SCHEME.equals(source.getScheme())) {
+      List<URI> layers = getLayers(source);
+      Properties merged = new Properties();
+      // lowest precedence first, so higher layers overwrite
+      for (int i = layers.size() - 1; i >= 0; i--) {
+        merged.putAll(readProperties(logicalSource, layers.get(i), watch));
+      }
+      return merged;
+    }
+    PropertySourceLoader sourceLoader = getSourceLoader(source);
+    Properties properties = sourceLoader.load(source);
+    if (watch && sourceLoader instanceof ReloadablePropertySourceLoader) {
+      ((ReloadablePropertySourceLoader)sourceLoader).watch(source, new SourceReloader(logicalSource));
+    }
+    return properties;
+  }
+
+  /**
+   * Reloads a changed source. The new properties are completely loaded and expanded
+   * before they replace the cached ones, so readers never see a partially loaded source.
+   * Resolution plans of the source are recompiled on next access, property references are
+   * updated immediately. Observers of
+   * {@link Updated} {@link PropertySourceChange} are notified about the changed keys.
+   */
+  protected void reloadProperties(URI source) {
+    PropertySnapshot reloaded;
+    try {
+      long start = System.nanoTime();
+      Properties properties = readProperties(source, source, false);
+      long loaded = System.nanoTime();
+      reloaded = expandProperties(properties);
+      statistics.recordLoad(source, loaded - start, System.nanoTime() - loaded);
+    } catch (RuntimeException e) {
+      LOG.error("Unable to reload properties from " + source + ". Keeping previous values. " + e.getMessage());
+      return;
+    }
+    PropertySnapshot current = snapshots.get(source);
+    Set<String> changedKeys = getChangedKeys(current != null ? current : PropertySnapshot.EMPTY, reloaded);
+    if (changedKeys.isEmpty()) {
+      return;
+    }
+    snapshots.put(source, reloaded);
+    for (Iterator<PropertyResolutionPlan> plans = resolutionPlans.values().iterator(); plans.hasNext();) {
+      if (plans.next().getSource().equals(source)) {
+        plans.remove();
+      }
+    }
+    for (PropertyReference reference : references.values()) {
+      if (reference.getPlan().getSource().equals(source)) {
+        updateReference(reference);
+      }
+    }
+    LOG.info("Reloaded properties from " + source + ", changed keys: " + changedKeys);
+    if (updateEvent != null) {
+      updateEvent.fire(new PropertySourceChange(source, changedKeys));
+    }
+  }
 
-  protected String expandSourceSystemProperties(String value) {
-    int i = value.indexOf("${");
-    if (i > 0) {
-      int last = value.indexOf("}", i);
-      if (last > 0) {
-        String placeholder = value.substring(i + 2, last);
-        value = value.substring(0, i) + replaceSourceSystemProperty(placeholder) + value.substring(last + 1);
-        return expandSourceSystemProperties(value);
+  protected Set<String> getChangedKeys(PropertySnapshot current, PropertySnapshot reloaded) {
+    Set<String> changedKeys = new TreeSet<String>();
+    for (String key : reloaded.getKeys()) {
+      if (!reloaded.get(key).equals(current.get(key))) {
+        changedKeys.add(key);
+      }
+    }
+    for (String key : current.getKeys()) {
+      if (!reloaded.containsKey(key)) {
+        changedKeys.add(key);
       }
     }
+    return changedKeys;
+  }
+
 
-    return value;
+  protected String expandSourceSystemProperties(String value) {
+    return getTemplate(value).expand(new PlaceholderTemplate.Resolver() {
+      public String resolve(String placeholder) {
+        return replaceSourceSystemProperty(placeholder);
+      }
+    });
   }
 
   protected String replaceSourceSystemProperty(String placeHolder) {
-    Object value = System.getProperties().get(placeHolder);
+    String value = environment.get(placeHolder);
     if (value == null) {
       return "!" + placeHolder + "!";
     } else {
-      return String.valueOf(value);
+      return value;
     }
   }
 
-  protected String expandPropertyValue(Properties p, String value) {
-    int i = value.indexOf("${");
-    if (i >= 0) {
-      int last = value.indexOf("}", i);
-      if (last > 0) {
-        String placeholder = value.substring(i + 2, last);
-        value = value.substring(0, i) + replaceProperty(p, placeholder) + value.substring(last + 1);
-        return expandPropertyValue(p, value);
+  /**
+   * Expands all placeholders of freshly loaded properties in a single pass.
+   * Placeholders that do not refer to a property of the same source are
+   * resolved using {@link #replaceProperty(PropertySnapshot, String)}.
+   *
+   * @param p The loaded properties.
+   * @return The snapshot of the expanded properties.
+   * @throws IllegalArgumentException if the properties contain cyclic references.
+   */
+  protected PropertySnapshot expandProperties(Properties p) {
+    return expandProperties(p, new HashMap<String, String>());
+  }
+
+  /**
+   * Expands the properties and records the placeholders that are resolved outside of the properties.
+   *
+   * @param p The loaded properties.
+   * @param externalReferences Receives the placeholders resolved outside of the properties and their values.
+   * @return The snapshot of the expanded properties.
+   */
+  protected PropertySnapshot expandProperties(Properties p, final Map<String, String> externalReferences) {
+    return new PropertyExpander(p, new PlaceholderTemplate.Resolver() {
+      public String resolve(String placeholder) {
+        String value = replaceProperty(PropertySnapshot.EMPTY, placeholder);
+        externalReferences.put(placeholder, value);
+        return value;
       }
-    }
+    }).expand();
+  }
 
-    return value;
+  protected String expandPropertyValue(final PropertySnapshot p, String value) {
+    return getTemplate(value).expand(new PlaceholderTemplate.Resolver() {
+      public String resolve(String placeholder) {
+        return replaceProperty(p, placeholder);
+      }
+    });
   }
 
 
-  protected String replaceProperty(Properties p, String placeHolder) {
-    Object value = p.get(placeHolder);
+  protected String replaceProperty(PropertySnapshot p, String placeHolder) {
+    String value = p.get(placeHolder);
     if (value == null) {
-      value = System.getProperties().get(placeHolder);
+      value = environment.get(placeHolder);
     }
 
     if (value == null) {
       return "!" + placeHolder + "!";
     } else {
-      return String.valueOf(value);
+      return value;
+    }
+  }
+
+  /**
+   * Source names and default values are declared in annotations and thus
+   * form a limited set of values, so their compiled templates are cached.
+   */
+  protected PlaceholderTemplate getTemplate(String value) {
+    PlaceholderTemplate template = templates.get(value);
+    if (template == null) {
+      template = PlaceholderTemplate.compile(value);
+      templates.put(value, template);
     }
+    return template;
   }
 
 
   @PostConstruct
   protected void init() {
+    if (applicationProperties != null) {
+      statistics = applicationProperties.getStatistics();
+    }
+
+    String snapshotDirectory = System.getProperty(PropertySnapshotStore.SNAPSHOT_DIRECTORY_PROPERTY);
+    if (snapshotDirectory != null) {
+      snapshotStore = new PropertySnapshotStore(new File(snapshotDirectory));
+      maskedKeys.addAll(PropertyIndex.load().getMaskedProperties());
+    }
+
     List<PropertySourceLoader> unsorted = new ArrayList<PropertySourceLoader>();
 
     for (PropertySourceLoader newSourceLoader : supportedSources) {
@@ -319,4 +929,39 @@ public class DefaultPropertyProvider implements PropertyProvider {
     // prepend all unordered loaders
     sourceLoaders.addAll(0, unsorted);
   }
+
+  /**
+   * Reloads a source when one of its layers has changed. Reloaders of the same
+   * source are equal, so a layer is watched only once per source.
+   */
+  private class SourceReloader implements PropertySourceListener {
+
+    private URI source;
+
+    public SourceReloader(URI aSource) {
+      source = aSource;
+    }
+
+    public void sourceChanged(URI resourceName) {
+      reloadProperties(source);
+    }
+
+    private DefaultPropertyProvider getProvider() {
+      return DefaultPropertyProvider.this;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof SourceReloader)) {
+        return false;
+      }
+      SourceReloader reloader = (SourceReloader)object;
+      return getProvider() == reloader.getProvider() && source.equals(reloader.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return source.hashCode();
+    }
+  }
 }
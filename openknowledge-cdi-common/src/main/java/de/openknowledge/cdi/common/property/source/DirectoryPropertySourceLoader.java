@@ -0,0 +1,283 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A property source loader that loads all <code>*.properties</code> files of a directory,
+ * i.e. a <code>conf.d</code> directory. The files are loaded in parallel and merged in the order
+ * of their names, so a property of <code>20-local.properties</code> overrides the same property
+ * of <code>10-defaults.properties</code>.
+ * <p/>
+ * Processes sources that start with <code>dir:</code>, i.e. <code>dir:conf.d</code> (relative to the
+ * current application path) or <code>dir:/etc/application/conf.d</code>.
+ * <p/>
+ * Loaded files are cached. When the directory is loaded again (i.e. on reload) only new and changed
+ * files are parsed. Directories are watched like files of the {@link FilePropertySourceLoader},
+ * see {@link FilePropertySourceLoader#WATCH_INTERVAL_PROPERTY}. Adding, changing or removing a file
+ * reloads the directory, including changes made while the directory is loaded.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class DirectoryPropertySourceLoader extends AbstractPropertySourceLoader implements ReloadablePropertySourceLoader {
+
+  public static final String DIRECTORY_SCHEME = "dir";
+
+  public static final String FILE_EXTENSION = ".properties";
+
+  private static final Log LOG = LogFactory.getLog(DirectoryPropertySourceLoader.class);
+
+  private static final int MAX_LOADER_THREADS = 4;
+
+  private long watchInterval = Long.getLong(FilePropertySourceLoader.WATCH_INTERVAL_PROPERTY, 0);
+  private Map<File, LoadedFile> loadedFiles = new ConcurrentHashMap<File, LoadedFile>();
+  private Map<URI, WatchedDirectory> watchedDirectories = new ConcurrentHashMap<URI, WatchedDirectory>();
+  private Map<URI, List<String>> loadedStates = new ConcurrentHashMap<URI, List<String>>();
+  private ExecutorService fileLoader;
+  private ScheduledExecutorService watcher;
+
+  public boolean supports(URI source) {
+    return DIRECTORY_SCHEME.equals(source.getScheme());
+  }
+
+  public Properties load(URI resource) {
+    File directory = toDirectory(resource);
+    if (watchInterval > 0 && !watchedDirectories.containsKey(resource)) {
+      // taken before loading, so the watch detects changes made after this point
+      loadedStates.put(resource, readState(directory));
+    }
+    List<File> files = listFiles(directory);
+    removeDeletedFiles(directory, files);
+    Properties properties = new Properties();
+    if (files.isEmpty()) {
+      LOG.debug("No property files found in directory " + directory);
+      return properties;
+    }
+    LOG.debug("Loading properties from directory " + directory);
+    if (files.size() == 1) {
+      properties.putAll(loadFile(files.get(0)));
+      return properties;
+    }
+    List<Future<Properties>> loads = new ArrayList<Future<Properties>>(files.size());
+    for (final File file : files) {
+      loads.add(getFileLoader().submit(new Callable<Properties>() {
+        public Properties call() {
+          return loadFile(file);
+        }
+      }));
+    }
+    // merge in order of the file names
+    for (Future<Properties> load : loads) {
+      try {
+        properties.putAll(load.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while loading properties from " + resource, e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Unable to load properties from " + resource, e.getCause());
+      }
+    }
+    return properties;
+  }
+
+  public synchronized void watch(URI resource, PropertySourceListener listener) {
+    if (watchInterval <= 0) {
+      return;
+    }
+    List<String> loadedState = loadedStates.remove(resource);
+    WatchedDirectory watchedDirectory = watchedDirectories.get(resource);
+    if (watchedDirectory != null) {
+      watchedDirectory.listeners.add(listener);
+      return;
+    }
+    LOG.debug("Watching property directory " + resource + " for changes");
+    List<String> state = loadedState != null ? loadedState : readState(toDirectory(resource));
+    watchedDirectories.put(resource, new WatchedDirectory(resource, listener, state));
+    if (watcher == null) {
+      watcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("property-directory-watcher"));
+      watcher.scheduleWithFixedDelay(new Runnable() {
+        public void run() {
+          checkWatchedDirectories();
+        }
+      }, watchInterval, watchInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void stopWatching() {
+    if (watcher != null) {
+      watcher.shutdownNow();
+      watcher = null;
+    }
+    if (fileLoader != null) {
+      fileLoader.shutdownNow();
+      fileLoader = null;
+    }
+    watchedDirectories.clear();
+    loadedStates.clear();
+    loadedFiles.clear();
+  }
+
+  protected File toDirectory(URI resource) {
+    return new File(resource.getSchemeSpecificPart());
+  }
+
+  /**
+   * @param directory The directory.
+   * @return The property files of the directory, ordered by name.
+   */
+  protected List<File> listFiles(File directory) {
+    File[] files = directory.listFiles(new FileFilter() {
+      public boolean accept(File file) {
+        return file.isFile() && file.getName().endsWith(FILE_EXTENSION);
+      }
+    });
+    if (files == null) {
+      return new ArrayList<File>();
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      public int compare(File file1, File file2) {
+        return file1.getName().compareTo(file2.getName());
+      }
+    });
+    return Arrays.asList(files);
+  }
+
+  private Properties loadFile(File file) {
+    long lastModified = file.lastModified();
+    long length = file.length();
+    LoadedFile loadedFile = loadedFiles.get(file);
+    if (loadedFile != null && loadedFile.lastModified == lastModified && loadedFile.length == length) {
+      return loadedFile.properties;
+    }
+    Properties properties = new Properties();
+    try {
+      LOG.debug("Loading properties from file " + file);
+      loadFromStream(properties, new FileInputStream(file));
+    } catch (IOException e) {
+      LOG.warn("Error loading properties from file " + file + ": " + e.getMessage());
+    }
+    // cached properties are only read, never modified
+    loadedFiles.put(file, new LoadedFile(lastModified, length, properties));
+    return properties;
+  }
+
+  private void removeDeletedFiles(File directory, List<File> files) {
+    for (Iterator<File> loaded = loadedFiles.keySet().iterator(); loaded.hasNext();) {
+      File file = loaded.next();
+      if (directory.equals(file.getParentFile()) && !files.contains(file)) {
+        loaded.remove();
+      }
+    }
+  }
+
+  /**
+   * @return The names, modification dates and sizes of the property files of the directory.
+   */
+  private List<String> readState(File directory) {
+    List<String> files = new ArrayList<String>();
+    for (File file : listFiles(directory)) {
+      files.add(file.getName() + ':' + file.lastModified() + ':' + file.length());
+    }
+    return files;
+  }
+
+  private synchronized ExecutorService getFileLoader() {
+    if (fileLoader == null) {
+      int threads = Math.min(MAX_LOADER_THREADS, Runtime.getRuntime().availableProcessors());
+      fileLoader = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("property-directory-loader"));
+    }
+    return fileLoader;
+  }
+
+  private void checkWatchedDirectories() {
+    for (WatchedDirectory watchedDirectory : watchedDirectories.values()) {
+      try {
+        if (watchedDirectory.hasChanged()) {
+          LOG.debug("Property directory " + watchedDirectory.resource + " has changed");
+          for (PropertySourceListener listener : watchedDirectory.listeners) {
+            listener.sourceChanged(watchedDirectory.resource);
+          }
+        }
+      } catch (RuntimeException e) {
+        LOG.warn("Error reloading properties from directory " + watchedDirectory.resource + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private static class LoadedFile {
+
+    private long lastModified;
+    private long length;
+    private Properties properties;
+
+    public LoadedFile(long aLastModified, long aLength, Properties someProperties) {
+      lastModified = aLastModified;
+      length = aLength;
+      properties = someProperties;
+    }
+  }
+
+  private class WatchedDirectory {
+
+    private URI resource;
+    private Set<PropertySourceListener> listeners = new CopyOnWriteArraySet<PropertySourceListener>();
+    private List<String> state;
+
+    public WatchedDirectory(URI aResource, PropertySourceListener aListener, List<String> aState) {
+      resource = aResource;
+      listeners.add(aListener);
+      state = aState;
+    }
+
+    public boolean hasChanged() {
+      List<String> currentState = readState(toDirectory(resource));
+      if (currentState.equals(state)) {
+        return false;
+      }
+      state = currentState;
+      return true;
+    }
+  }
+}
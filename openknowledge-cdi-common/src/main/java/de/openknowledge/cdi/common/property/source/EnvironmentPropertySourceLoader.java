@@ -0,0 +1,57 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A property source loader that provides the environment variables. Mostly useful
+ * as a layer of a layered source (see {@link DefaultPropertyProvider}).
+ * <p/>
+ * Processes sources that start with <code>env:</code>. The scheme specific part is a key prefix
+ * with an optional trailing <code>*</code>, <code>*</code> selects all environment variables.
+ * <pre>
+ *  env:*                - all environment variables
+ *  env:APP_*            - all environment variables starting with APP_
+ * </pre>
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class EnvironmentPropertySourceLoader extends AbstractPropertySourceLoader {
+
+  public static final String ENVIRONMENT_SCHEME = "env";
+
+  public boolean supports(URI source) {
+    return ENVIRONMENT_SCHEME.equals(source.getScheme());
+  }
+
+  public Properties load(URI resource) {
+    String keyPrefix = resource.getSchemeSpecificPart();
+    if (keyPrefix.endsWith("*")) {
+      keyPrefix = keyPrefix.substring(0, keyPrefix.length() - 1);
+    }
+    Properties properties = new Properties();
+    for (Map.Entry<String, String> variable : System.getenv().entrySet()) {
+      if (variable.getKey().startsWith(keyPrefix)) {
+        properties.setProperty(variable.getKey(), variable.getValue());
+      }
+    }
+    return properties;
+  }
+}
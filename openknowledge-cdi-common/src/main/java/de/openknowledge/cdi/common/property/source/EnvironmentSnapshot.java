@@ -0,0 +1,68 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * An immutable copy of the system properties and environment variables that are used
+ * to resolve placeholders in source names and property values. System properties take
+ * precedence over environment variables.
+ * <p/>
+ * Reading the copy does not synchronize on the system properties. Changes of the system
+ * properties become visible when a new snapshot is captured.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public final class EnvironmentSnapshot {
+
+  private PropertySnapshot systemProperties;
+  private PropertySnapshot environmentVariables;
+
+  private EnvironmentSnapshot(PropertySnapshot someSystemProperties, PropertySnapshot someEnvironmentVariables) {
+    systemProperties = someSystemProperties;
+    environmentVariables = someEnvironmentVariables;
+  }
+
+  /**
+   * Captures the current system properties and environment variables.
+   *
+   * @return The snapshot.
+   */
+  public static EnvironmentSnapshot capture() {
+    Properties properties = System.getProperties();
+    Map<String, String> systemProperties = new HashMap<String, String>();
+    for (String name : properties.stringPropertyNames()) {
+      String value = properties.getProperty(name);
+      if (value != null) {
+        systemProperties.put(name, value);
+      }
+    }
+    return new EnvironmentSnapshot(new PropertySnapshot(systemProperties), new PropertySnapshot(System.getenv()));
+  }
+
+  /**
+   * @param name The name of a system property or environment variable.
+   * @return The value of the system property, the value of the environment variable or null, if neither exists.
+   */
+  public String get(String name) {
+    String value = systemProperties.get(name);
+    return value != null ? value : environmentVariables.get(name);
+  }
+}
@@ -20,7 +20,16 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -32,18 +41,31 @@ import org.apache.commons.logging.LogFactory;
  * <p/>
  * Processes sources that start with <code>file://</code>.
  * <p/>
+ * Files may be watched for changes. Watching is disabled by default and enabled
+ * by setting the system property <code>de.openknowledge.cdi.property.file.watchInterval</code>
+ * to the polling interval in milliseconds. Watched files are checked for a changed
+ * modification date or size and reloaded on change. The modification date and size of a file
+ * are taken before it is loaded, so changes made while or after the file is loaded are detected.
+ * <p/>
  * Order value is {@link Integer#MAX_VALUE} - 1.
  *
  * @author Jens Schumann - open knowledge GmbH
  * @author Arne Limburg - open knowledge GmbH
  * @version $Revision: 7659 $
  */
-public class FilePropertySourceLoader extends AbstractPropertySourceLoader {
+public class FilePropertySourceLoader extends AbstractPropertySourceLoader implements ReloadablePropertySourceLoader {
 
   public static final String FILE_SCHEME = "file";
 
+  public static final String WATCH_INTERVAL_PROPERTY = "de.openknowledge.cdi.property.file.watchInterval";
+
   private static final Log LOG = LogFactory.getLog(FilePropertySourceLoader.class);
 
+  private long watchInterval = Long.getLong(WATCH_INTERVAL_PROPERTY, 0);
+  private ScheduledExecutorService watcher;
+  private Map<URI, WatchedFile> watchedFiles = new ConcurrentHashMap<URI, WatchedFile>();
+  private Map<URI, FileState> loadedFiles = new ConcurrentHashMap<URI, FileState>();
+
   public boolean supports(URI source) {
     return FILE_SCHEME.equals(source.getScheme());
   }
@@ -52,11 +74,10 @@ public class FilePropertySourceLoader extends AbstractPropertySourceLoader {
     Properties properties = new Properties();
     
     try {
-      File file;
-      if (resource.isOpaque()) {
-        file = new File(resource.getSchemeSpecificPart());
-      } else {
-        file = new File(resource);
+      File file = toFile(resource);
+      if (watchInterval > 0 && !watchedFiles.containsKey(resource)) {
+        // taken before reading, so the watch detects changes made after this point
+        loadedFiles.put(resource, new FileState(file));
       }
       if (file.exists() && file.canRead()) {
         LOG.debug("Loading properties from file " + file);
@@ -70,4 +91,107 @@ public class FilePropertySourceLoader extends AbstractPropertySourceLoader {
 
     return properties;
   }
+
+  public synchronized void watch(URI resource, PropertySourceListener listener) {
+    if (watchInterval <= 0) {
+      return;
+    }
+    FileState loadedState = loadedFiles.remove(resource);
+    WatchedFile watchedFile = watchedFiles.get(resource);
+    if (watchedFile != null) {
+      // the file may be a layer of several sources
+      watchedFile.listeners.add(listener);
+      return;
+    }
+    LOG.debug("Watching property file " + resource + " for changes");
+    File file = toFile(resource);
+    FileState state = loadedState != null ? loadedState : new FileState(file);
+    watchedFiles.put(resource, new WatchedFile(resource, file, listener, state));
+    if (watcher == null) {
+      watcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("property-file-watcher"));
+      watcher.scheduleWithFixedDelay(new Runnable() {
+        public void run() {
+          checkWatchedFiles();
+        }
+      }, watchInterval, watchInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void stopWatching() {
+    if (watcher != null) {
+      watcher.shutdownNow();
+      watcher = null;
+    }
+    watchedFiles.clear();
+    loadedFiles.clear();
+  }
+
+  protected File toFile(URI resource) {
+    if (resource.isOpaque()) {
+      return new File(resource.getSchemeSpecificPart());
+    } else {
+      return new File(resource);
+    }
+  }
+
+  private void checkWatchedFiles() {
+    for (WatchedFile watchedFile : watchedFiles.values()) {
+      try {
+        if (watchedFile.hasChanged()) {
+          LOG.debug("Property file " + watchedFile.resource + " has changed");
+          for (PropertySourceListener listener : watchedFile.listeners) {
+            listener.sourceChanged(watchedFile.resource);
+          }
+        }
+      } catch (RuntimeException e) {
+        LOG.warn("Error reloading properties from file resource " + watchedFile.resource + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * The modification date and size of a file.
+   */
+  private static class FileState {
+
+    private long lastModified;
+    private long length;
+
+    public FileState(File aFile) {
+      lastModified = aFile.lastModified();
+      length = aFile.length();
+    }
+
+    public boolean isUnchanged(FileState aState) {
+      return lastModified == aState.lastModified && length == aState.length;
+    }
+  }
+
+  /**
+   * A watched file. The initial state is the state of the file before it was loaded.
+   */
+  private static class WatchedFile {
+
+    private URI resource;
+    private File file;
+    private Set<PropertySourceListener> listeners = new CopyOnWriteArraySet<PropertySourceListener>();
+    private FileState state;
+
+    public WatchedFile(URI aResource, File aFile, PropertySourceListener aListener, FileState aState) {
+      resource = aResource;
+      file = aFile;
+      listeners.add(aListener);
+      state = aState;
+    }
+
+    public boolean hasChanged() {
+      FileState currentState = new FileState(file);
+      if (currentState.isUnchanged(state)) {
+        return false;
+      }
+      state = currentState;
+      return true;
+    }
+  }
 }
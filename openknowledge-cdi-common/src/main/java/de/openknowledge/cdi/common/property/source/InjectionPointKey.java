@@ -0,0 +1,69 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.lang.reflect.Member;
+
+import javax.enterprise.inject.spi.AnnotatedParameter;
+import javax.enterprise.inject.spi.InjectionPoint;
+
+/**
+ * Identifies an injection point by its member, the parameter position and the bean class.
+ * Unlike the {@link InjectionPoint} itself the key is the same for all instances of
+ * a dependent bean, so caches keyed by it are bounded by the number of injection points
+ * in the code.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+final class InjectionPointKey {
+
+  private Member member;
+  private int position;
+  private Class<?> beanClass;
+  private int hashCode;
+
+  InjectionPointKey(InjectionPoint injectionPoint) {
+    member = injectionPoint.getMember();
+    position = injectionPoint.getAnnotated() instanceof AnnotatedParameter
+      ? ((AnnotatedParameter<?>)injectionPoint.getAnnotated()).getPosition()
+      : -1;
+    beanClass = injectionPoint.getBean() != null ? injectionPoint.getBean().getBeanClass() : member.getDeclaringClass();
+    hashCode = (member.hashCode() * 31 + position) * 31 + beanClass.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof InjectionPointKey)) {
+      return false;
+    }
+    InjectionPointKey key = (InjectionPointKey)object;
+    return position == key.position && member.equals(key.member) && beanClass.equals(key.beanClass);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return beanClass.getName() + ": " + member + (position >= 0 ? " [" + position + "]" : "");
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A property source loader that reads the properties of a namespace from a database table.
+ * All properties of a namespace are fetched with a single query.
+ * <p/>
+ * Processes sources that start with <code>jdbc:</code>. The source is the jdbc url of the database
+ * or the jndi name of a data source, the namespace is the fragment of the source.
+ * <pre>
+ *  jdbc:h2:mem:config#tenant-a       - namespace tenant-a of the database jdbc:h2:mem:config
+ *  jdbc:java:comp/env/jdbc/config#ui - namespace ui of the data source java:comp/env/jdbc/config
+ * </pre>
+ * By default the properties are read from the table <code>PROPERTIES</code> with the columns
+ * <code>NAMESPACE</code>, <code>PROPERTY_KEY</code> and <code>PROPERTY_VALUE</code>. Use
+ * {@link #QUERY_PROPERTY} to provide a different query. Rows without key or value are skipped.
+ * <p/>
+ * Use the jndi name of a data source in production, so the credentials are managed by the container.
+ * Credentials for plain jdbc urls are read from {@link #USER_PROPERTY} and {@link #PASSWORD_PROPERTY},
+ * which are meant for tests only, since system properties are visible to the whole application.
+ * <p/>
+ * The properties of a namespace are cached, so reading a source does not access the database
+ * once it is loaded. Refreshing is disabled by default and enabled by setting
+ * {@link #TIME_TO_LIVE_PROPERTY} to the refresh interval in milliseconds. Watched sources are then
+ * refreshed in the background. Listeners are only notified when the properties have
+ * changed. If a refresh fails, the cached properties are kept.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class JdbcPropertySourceLoader extends AbstractPropertySourceLoader implements ReloadablePropertySourceLoader {
+
+  public static final String JDBC_SCHEME = "jdbc";
+
+  public static final String QUERY_PROPERTY = "de.openknowledge.cdi.property.jdbc.query";
+
+  /**
+   * The user for plain jdbc urls. For tests only, use a data source in production.
+   */
+  public static final String USER_PROPERTY = "de.openknowledge.cdi.property.jdbc.user";
+
+  /**
+   * The password for plain jdbc urls. For tests only, use a data source in production.
+   */
+  public static final String PASSWORD_PROPERTY = "de.openknowledge.cdi.property.jdbc.password";
+
+  public static final String TIME_TO_LIVE_PROPERTY = "de.openknowledge.cdi.property.jdbc.ttl";
+
+  public static final String DEFAULT_QUERY = "SELECT PROPERTY_KEY, PROPERTY_VALUE FROM PROPERTIES WHERE NAMESPACE = ?";
+
+  private static final Log LOG = LogFactory.getLog(JdbcPropertySourceLoader.class);
+
+  private static final String JNDI_PREFIX = "java:";
+
+  private String query = System.getProperty(QUERY_PROPERTY, DEFAULT_QUERY);
+  private long timeToLive = Long.getLong(TIME_TO_LIVE_PROPERTY, 0);
+  private Map<URI, Properties> cachedProperties = new ConcurrentHashMap<URI, Properties>();
+  private Map<URI, Set<PropertySourceListener>> watchedSources = new ConcurrentHashMap<URI, Set<PropertySourceListener>>();
+  private ScheduledExecutorService refresher;
+
+  public boolean supports(URI source) {
+    return JDBC_SCHEME.equals(source.getScheme());
+  }
+
+  public Properties load(URI resource) {
+    Properties properties = cachedProperties.get(resource);
+    if (properties == null) {
+      try {
+        properties = fetchProperties(resource);
+      } catch (SQLException e) {
+        throw new IllegalStateException("Unable to load properties from " + resource, e);
+      }
+      cachedProperties.put(resource, properties);
+    }
+    // cached properties are never modified
+    Properties result = new Properties();
+    result.putAll(properties);
+    return result;
+  }
+
+  public synchronized void watch(URI resource, PropertySourceListener listener) {
+    if (timeToLive <= 0) {
+      return;
+    }
+    Set<PropertySourceListener> listeners = watchedSources.get(resource);
+    if (listeners != null) {
+      listeners.add(listener);
+      return;
+    }
+    LOG.debug("Refreshing properties from " + resource + " every " + timeToLive + "ms");
+    listeners = new CopyOnWriteArraySet<PropertySourceListener>();
+    listeners.add(listener);
+    watchedSources.put(resource, listeners);
+    if (refresher == null) {
+      refresher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("property-jdbc-refresher"));
+      refresher.scheduleWithFixedDelay(new Runnable() {
+        public void run() {
+          refreshWatchedSources();
+        }
+      }, timeToLive, timeToLive, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void stopWatching() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+      refresher = null;
+    }
+    watchedSources.clear();
+    cachedProperties.clear();
+  }
+
+  /**
+   * Reads all properties of the namespace of the given source.
+   *
+   * @param resource The source.
+   * @return The properties of the namespace.
+   * @throws SQLException If the database cannot be accessed.
+   */
+  protected Properties fetchProperties(URI resource) throws SQLException {
+    String namespace = resource.getFragment() != null ? resource.getFragment() : "";
+    LOG.debug("Loading properties of namespace " + namespace + " from " + resource);
+    Connection connection = getConnection(resource);
+    try {
+      PreparedStatement statement = connection.prepareStatement(query);
+      try {
+        statement.setString(1, namespace);
+        ResultSet resultSet = statement.executeQuery();
+        Properties properties = new Properties();
+        while (resultSet.next()) {
+          String key = resultSet.getString(1);
+          String value = resultSet.getString(2);
+          if (key == null || value == null) {
+            LOG.warn("Skipping property " + key + " of namespace " + namespace + " from " + resource
+              + ", " + (key == null ? "key" : "value") + " is NULL");
+            continue;
+          }
+          properties.setProperty(key, value);
+        }
+        resultSet.close();
+        return properties;
+      } finally {
+        statement.close();
+      }
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * Opens a connection to the database of the given source.
+   *
+   * @param resource The source.
+   * @return A new connection. The caller closes the connection.
+   * @throws SQLException If no connection can be opened.
+   */
+  protected Connection getConnection(URI resource) throws SQLException {
+    String name = resource.getSchemeSpecificPart();
+    if (name.startsWith(JNDI_PREFIX)) {
+      try {
+        return ((DataSource)new InitialContext().lookup(name)).getConnection();
+      } catch (NamingException e) {
+        throw new IllegalStateException("Data source " + name + " not found", e);
+      }
+    }
+    return DriverManager.getConnection(JDBC_SCHEME + ':' + name,
+                                       System.getProperty(USER_PROPERTY),
+                                       System.getProperty(PASSWORD_PROPERTY));
+  }
+
+  private void refreshWatchedSources() {
+    for (Map.Entry<URI, Set<PropertySourceListener>> watchedSource : watchedSources.entrySet()) {
+      URI resource = watchedSource.getKey();
+      try {
+        Properties properties = fetchProperties(resource);
+        if (properties.equals(cachedProperties.get(resource))) {
+          continue;
+        }
+        LOG.debug("Properties of " + resource + " have changed");
+        cachedProperties.put(resource, properties);
+        for (PropertySourceListener listener : watchedSource.getValue()) {
+          listener.sourceChanged(resource);
+        }
+      } catch (SQLException e) {
+        LOG.warn("Error refreshing properties from " + resource + ": " + e.getMessage());
+      } catch (RuntimeException e) {
+        LOG.warn("Error reloading properties from " + resource + ": " + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compiled value that may contain placeholders such as <code>${java.io.tmpdir}</code>.
+ * The value is parsed once into literal and reference segments. Expanding the template
+ * is a single pass over the segments.
+ * <p/>
+ * Unterminated placeholders are treated as literal text.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PlaceholderTemplate {
+
+  private static final String PLACEHOLDER_START = "${";
+  private static final char PLACEHOLDER_END = '}';
+
+  private String value;
+  private String[] segments;
+  private boolean[] references;
+  private int literalLength;
+
+  private PlaceholderTemplate(String aValue, List<String> someSegments, List<Boolean> someReferences) {
+    value = aValue;
+    segments = someSegments.toArray(new String[someSegments.size()]);
+    references = new boolean[segments.length];
+    for (int i = 0; i < segments.length; i++) {
+      references[i] = someReferences.get(i);
+      if (!references[i]) {
+        literalLength += segments[i].length();
+      }
+    }
+  }
+
+  /**
+   * Parses the given value into a template.
+   *
+   * @param value The value, may contain placeholders.
+   * @return The compiled template.
+   */
+  public static PlaceholderTemplate compile(String value) {
+    List<String> segments = new ArrayList<String>();
+    List<Boolean> references = new ArrayList<Boolean>();
+    int position = 0;
+    int start = value.indexOf(PLACEHOLDER_START);
+    while (start >= 0) {
+      int end = value.indexOf(PLACEHOLDER_END, start + PLACEHOLDER_START.length());
+      if (end < 0) {
+        break;
+      }
+      if (start > position) {
+        segments.add(value.substring(position, start));
+        references.add(Boolean.FALSE);
+      }
+      segments.add(value.substring(start + PLACEHOLDER_START.length(), end));
+      references.add(Boolean.TRUE);
+      position = end + 1;
+      start = value.indexOf(PLACEHOLDER_START, position);
+    }
+    if (position < value.length()) {
+      segments.add(value.substring(position));
+      references.add(Boolean.FALSE);
+    }
+    return new PlaceholderTemplate(value, segments, references);
+  }
+
+  /**
+   * @return True if the template does not contain any placeholder.
+   */
+  public boolean isConstant() {
+    return literalLength == value.length();
+  }
+
+  /**
+   * @return The names of all referenced placeholders in order of appearance.
+   */
+  public List<String> getReferences() {
+    if (isConstant()) {
+      return Collections.emptyList();
+    }
+    List<String> names = new ArrayList<String>();
+    for (int i = 0; i < segments.length; i++) {
+      if (references[i]) {
+        names.add(segments[i]);
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Replaces all placeholders using the given resolver.
+   *
+   * @param resolver The resolver for the placeholder values.
+   * @return The expanded value.
+   */
+  public String expand(Resolver resolver) {
+    if (isConstant()) {
+      return value;
+    }
+    StringBuilder result = new StringBuilder(literalLength + 16 * segments.length);
+    for (int i = 0; i < segments.length; i++) {
+      if (references[i]) {
+        result.append(resolver.resolve(segments[i]));
+      } else {
+        result.append(segments[i]);
+      }
+    }
+    return result.toString();
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+
+  /**
+   * Resolves the value of a single placeholder.
+   */
+  public interface Resolver {
+
+    /**
+     * @param placeholder The name of the placeholder without <code>${</code> and <code>}</code>.
+     * @return The replacement for the placeholder. Never null.
+     */
+    String resolve(String placeholder);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Expands all placeholders of a set of properties. Every value is compiled once into a
+ * {@link PlaceholderTemplate}. References to other properties of the same set are
+ * resolved along the dependency graph, so every property is expanded exactly once.
+ * References that are not part of the set are resolved by a fallback resolver.
+ * <p/>
+ * Cyclic references are reported with an {@link IllegalArgumentException}.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertyExpander {
+
+  private Map<String, PlaceholderTemplate> templates = new HashMap<String, PlaceholderTemplate>();
+  private Map<String, String> expandedValues = new HashMap<String, String>();
+  private Set<String> resolving = new LinkedHashSet<String>();
+  private PlaceholderTemplate.Resolver fallback;
+
+  public PropertyExpander(Properties properties, PlaceholderTemplate.Resolver fallbackResolver) {
+    for (String key : properties.stringPropertyNames()) {
+      templates.put(key, PlaceholderTemplate.compile(properties.getProperty(key)));
+    }
+    fallback = fallbackResolver;
+  }
+
+  /**
+   * Expands all properties.
+   *
+   * @return The snapshot of the expanded properties.
+   */
+  public PropertySnapshot expand() {
+    for (String key : templates.keySet()) {
+      expand(key);
+    }
+    return new PropertySnapshot(expandedValues);
+  }
+
+  private String expand(String key) {
+    String value = expandedValues.get(key);
+    if (value != null) {
+      return value;
+    }
+    if (!resolving.add(key)) {
+      throw new IllegalArgumentException("Cyclic property reference " + describeCycle(key));
+    }
+    value = templates.get(key).expand(new PlaceholderTemplate.Resolver() {
+      public String resolve(String placeholder) {
+        if (templates.containsKey(placeholder)) {
+          return expand(placeholder);
+        }
+        return fallback.resolve(placeholder);
+      }
+    });
+    resolving.remove(key);
+    expandedValues.put(key, value);
+    return value;
+  }
+
+  private String describeCycle(String key) {
+    StringBuilder cycle = new StringBuilder();
+    boolean inCycle = false;
+    for (String resolvingKey : resolving) {
+      inCycle |= resolvingKey.equals(key);
+      if (inCycle) {
+        cycle.append(resolvingKey).append(" -> ");
+      }
+    }
+    return cycle.append(key).toString();
+  }
+}
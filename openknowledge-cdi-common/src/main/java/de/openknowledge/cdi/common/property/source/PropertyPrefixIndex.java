@@ -0,0 +1,56 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches prefix queries (i.e. property wildcards such as <code>foo.*</code>) against
+ * a {@link PropertySnapshot}. The snapshot answers a prefix query by a range scan
+ * over its sorted keys; the result of every query is cached.
+ * <p/>
+ * An index represents the state of a source at the time it was built. It is held by
+ * its snapshot, see {@link PropertySnapshot#getPrefixIndex()}.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertyPrefixIndex {
+
+  private PropertySnapshot snapshot;
+  private Map<String, Map<String, String>> prefixCache = new ConcurrentHashMap<String, Map<String, String>>();
+
+  public PropertyPrefixIndex(PropertySnapshot aSnapshot) {
+    snapshot = aSnapshot;
+  }
+
+  /**
+   * Returns all properties whose keys start with the given prefix.
+   *
+   * @param keyPrefix The key prefix.
+   * @return An unmodifiable map of the matching properties. May be empty.
+   */
+  public Map<String, String> getProperties(String keyPrefix) {
+    Map<String, String> result = prefixCache.get(keyPrefix);
+    if (result == null) {
+      result = Collections.unmodifiableMap(snapshot.getProperties(keyPrefix));
+      prefixCache.put(keyPrefix, result);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import javax.enterprise.inject.spi.InjectionPoint;
+
+/**
+ * A reference to the current resolution of a property injection point.
+ * Unlike a {@link PropertyResolutionPlan}, which represents the state of a source
+ * at the time it was compiled, a reference is updated when its source is reloaded.
+ * Reading the current plan is a single volatile read.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertyReference {
+
+  private InjectionPoint injectionPoint;
+  private volatile PropertyResolutionPlan plan;
+
+  public PropertyReference(InjectionPoint anInjectionPoint, PropertyResolutionPlan aPlan) {
+    injectionPoint = anInjectionPoint;
+    plan = aPlan;
+  }
+
+  public InjectionPoint getInjectionPoint() {
+    return injectionPoint;
+  }
+
+  /**
+   * @return The current plan. A new plan instance indicates a changed source.
+   */
+  public PropertyResolutionPlan getPlan() {
+    return plan;
+  }
+
+  /**
+   * @return The current value of the property.
+   */
+  public String getValue() {
+    return plan.getValue();
+  }
+
+  void update(PropertyResolutionPlan aPlan) {
+    plan = aPlan;
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.net.URI;
+
+/**
+ * The precompiled resolution of a single {@link de.openknowledge.cdi.common.property.Property}
+ * injection point. A plan is created once per injection point and holds everything
+ * that is needed to resolve the property value: the resolved source, the property key,
+ * the already expanded default value and the loaded snapshot of the source.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertyResolutionPlan {
+
+  private URI source;
+  private String key;
+  private String defaultValue;
+  private PropertySnapshot snapshot;
+
+  public PropertyResolutionPlan(URI aSource, String aKey, String aDefaultValue, PropertySnapshot aSnapshot) {
+    source = aSource;
+    key = aKey;
+    defaultValue = aDefaultValue;
+    snapshot = aSnapshot;
+  }
+
+  public URI getSource() {
+    return source;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getDefaultValue() {
+    return defaultValue;
+  }
+
+  public PropertySnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Resolves the current value of the property.
+   *
+   * @return The value of the property or the default value, if the property is not present in the source.
+   */
+  public String getValue() {
+    return snapshot.get(key, defaultValue);
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * An immutable snapshot of the properties of a loaded source. Lookups do not lock,
+ * so a snapshot may be read concurrently by any number of threads.
+ * <p/>
+ * The properties are stored in an open addressing hash table together with the
+ * precomputed hash of every key. Additionally the keys are kept in sorted order
+ * to answer prefix queries with a binary search. The {@link PropertyPrefixIndex} that caches
+ * the prefix queries is built on first use and belongs to the snapshot, so it is replaced
+ * together with the snapshot when the source changes.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public final class PropertySnapshot {
+
+  public static final PropertySnapshot EMPTY = new PropertySnapshot(Collections.<String, String>emptyMap());
+
+  private final String[] keys;
+  private final String[] values;
+  private final int[] hashes;
+  private final int mask;
+  private final String[] sortedKeys;
+  private volatile PropertyPrefixIndex prefixIndex;
+
+  public PropertySnapshot(Map<String, String> properties) {
+    // keep the load factor at or below 0.5 to keep probe sequences short
+    int capacity = Integer.highestOneBit(Math.max(properties.size(), 1) * 4 - 1);
+    keys = new String[capacity];
+    values = new String[capacity];
+    hashes = new int[capacity];
+    mask = capacity - 1;
+    sortedKeys = new String[properties.size()];
+    int i = 0;
+    for (Map.Entry<String, String> entry : properties.entrySet()) {
+      if (entry.getKey() == null || entry.getValue() == null) {
+        throw new IllegalArgumentException("null keys or values are not supported: " + entry);
+      }
+      put(entry.getKey(), entry.getValue());
+      sortedKeys[i++] = entry.getKey();
+    }
+    Arrays.sort(sortedKeys);
+  }
+
+  /**
+   * Creates a snapshot of the given properties. Keys and values that are not Strings are ignored.
+   */
+  public static PropertySnapshot of(Properties properties) {
+    Map<String, String> map = new LinkedHashMap<String, String>();
+    for (String key : properties.stringPropertyNames()) {
+      map.put(key, properties.getProperty(key));
+    }
+    return new PropertySnapshot(map);
+  }
+
+  private void put(String key, String value) {
+    int hash = hash(key);
+    int index = hash & mask;
+    while (keys[index] != null) {
+      if (hashes[index] == hash && keys[index].equals(key)) {
+        values[index] = value;
+        return;
+      }
+      index = (index + 1) & mask;
+    }
+    keys[index] = key;
+    values[index] = value;
+    hashes[index] = hash;
+  }
+
+  /**
+   * @param key The property key.
+   * @return The value or null, if the key is not present.
+   */
+  public String get(String key) {
+    int hash = hash(key);
+    int index = hash & mask;
+    String candidate;
+    while ((candidate = keys[index]) != null) {
+      if (hashes[index] == hash && (candidate == key || candidate.equals(key))) {
+        return values[index];
+      }
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  public String get(String key, String defaultValue) {
+    String value = get(key);
+    return value != null ? value : defaultValue;
+  }
+
+  public boolean containsKey(String key) {
+    return get(key) != null;
+  }
+
+  public int size() {
+    return sortedKeys.length;
+  }
+
+  /**
+   * @return All keys in ascending order.
+   */
+  public List<String> getKeys() {
+    return Collections.unmodifiableList(Arrays.asList(sortedKeys));
+  }
+
+  /**
+   * Returns all properties whose keys start with the given prefix in ascending key order.
+   *
+   * @param keyPrefix The key prefix.
+   * @return The matching properties. May be empty.
+   */
+  public Map<String, String> getProperties(String keyPrefix) {
+    Map<String, String> result = new LinkedHashMap<String, String>();
+    int index = Arrays.binarySearch(sortedKeys, keyPrefix);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    for (; index < sortedKeys.length && sortedKeys[index].startsWith(keyPrefix); index++) {
+      result.put(sortedKeys[index], get(sortedKeys[index]));
+    }
+    return result;
+  }
+
+  /**
+   * @return The cache of prefix queries against this snapshot.
+   */
+  public PropertyPrefixIndex getPrefixIndex() {
+    PropertyPrefixIndex index = prefixIndex;
+    if (index == null) {
+      // concurrent threads may build an index each, which is harmless
+      index = new PropertyPrefixIndex(this);
+      prefixIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * @return A new, modifiable {@link Properties} object containing all properties of this snapshot.
+   */
+  public Properties toProperties() {
+    Properties properties = new Properties();
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        properties.setProperty(keys[i], values[i]);
+      }
+    }
+    return properties;
+  }
+
+  private static int hash(String key) {
+    int hash = key.hashCode();
+    // spread higher bits since we only use the lower bits for indexing
+    return hash ^ (hash >>> 16);
+  }
+
+  @Override
+  public String toString() {
+    return toProperties().toString();
+  }
+}
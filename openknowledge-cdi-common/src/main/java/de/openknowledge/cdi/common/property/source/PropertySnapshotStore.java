@@ -0,0 +1,393 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Stores expanded {@link PropertySnapshot}s on disk, so unchanged sources do not have to be
+ * parsed and expanded again on the next start.
+ * <p/>
+ * Every stored snapshot records the modification date and size of the files it was loaded from
+ * and the names of all placeholders that were resolved outside of the source (i.e. system properties
+ * or environment variables) together with a hash of their values. A stored snapshot is only used when
+ * all of them are unchanged.
+ * <p/>
+ * Values resolved outside of the source are never written to disk. Properties whose expanded value
+ * depends on such a placeholder are stored unexpanded and expanded again when the snapshot is read.
+ * Sources that contain masked properties (see {@link de.openknowledge.cdi.common.property.Property#mask()}),
+ * including properties matched by a masked wildcard, are not stored at all. The files are only readable by the owner.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertySnapshotStore {
+
+  public static final String SNAPSHOT_DIRECTORY_PROPERTY = "de.openknowledge.cdi.property.snapshot.dir";
+
+  private static final Log LOG = LogFactory.getLog(PropertySnapshotStore.class);
+
+  private static final int MAGIC = 0x4f4b5053;
+  private static final int VERSION = 2;
+  private static final String UTF_8 = "UTF-8";
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private File directory;
+
+  public PropertySnapshotStore(File aDirectory) {
+    directory = aDirectory;
+  }
+
+  /**
+   * Creates the fingerprint of the given files. Take the fingerprint before loading the files,
+   * so a concurrent change invalidates the stored snapshot.
+   */
+  public Fingerprint fingerprint(List<File> files) {
+    return new Fingerprint(files);
+  }
+
+  /**
+   * Reads a stored snapshot.
+   *
+   * @param source The source of the snapshot.
+   * @param fingerprint The current fingerprint of the files of the source.
+   * @param resolver Resolves the current values of the placeholders that were resolved outside of the source.
+   * @return The snapshot or null, if there is no stored snapshot or it is outdated.
+   */
+  public PropertySnapshot read(URI source, Fingerprint fingerprint, PlaceholderTemplate.Resolver resolver) {
+    File file = getFile(source);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        return read(input, source, fingerprint, resolver);
+      } finally {
+        input.close();
+      }
+    } catch (IOException e) {
+      // i.e. EOFException of a truncated file
+      LOG.warn("Unable to read stored property snapshot " + file + ": " + e);
+    } catch (RuntimeException e) {
+      LOG.warn("Ignoring corrupt property snapshot " + file + ": " + e);
+    }
+    return null;
+  }
+
+  private PropertySnapshot read(DataInputStream input,
+                                URI source,
+                                Fingerprint fingerprint,
+                                final PlaceholderTemplate.Resolver resolver) throws IOException {
+    if (input.readInt() != MAGIC || input.readInt() != VERSION || !source.toString().equals(readString(input))) {
+      return null;
+    }
+    int fileCount = input.readInt();
+    List<String> paths = new ArrayList<String>(fileCount);
+    long[] modificationDates = new long[fileCount];
+    long[] sizes = new long[fileCount];
+    for (int i = 0; i < fileCount; i++) {
+      paths.add(readString(input));
+      modificationDates[i] = input.readLong();
+      sizes[i] = input.readLong();
+    }
+    if (!fingerprint.equals(new Fingerprint(paths, modificationDates, sizes))) {
+      LOG.debug("Stored property snapshot of " + source + " is outdated");
+      return null;
+    }
+    int referenceCount = input.readInt();
+    Map<String, String> externalReferences = new HashMap<String, String>(referenceCount * 4 / 3 + 1);
+    for (int i = 0; i < referenceCount; i++) {
+      String placeholder = readString(input);
+      externalReferences.put(placeholder, resolver.resolve(placeholder));
+    }
+    byte[] storedDigest = new byte[input.readInt()];
+    input.readFully(storedDigest);
+    if (!MessageDigest.isEqual(storedDigest, digest(externalReferences))) {
+      LOG.debug("Stored property snapshot of " + source + " is outdated, external references have changed");
+      return null;
+    }
+    int size = input.readInt();
+    final Map<String, String> properties = new HashMap<String, String>(size * 4 / 3 + 1);
+    Properties unexpandedProperties = new Properties();
+    for (int i = 0; i < size; i++) {
+      boolean expanded = input.readBoolean();
+      String key = readString(input);
+      String value = readString(input);
+      if (expanded) {
+        properties.put(key, value);
+      } else {
+        unexpandedProperties.setProperty(key, value);
+      }
+    }
+    if (!unexpandedProperties.isEmpty()) {
+      PropertySnapshot expandedProperties = new PropertyExpander(unexpandedProperties, new PlaceholderTemplate.Resolver() {
+        public String resolve(String placeholder) {
+          String value = properties.get(placeholder);
+          return value != null ? value : resolver.resolve(placeholder);
+        }
+      }).expand();
+      for (String key : expandedProperties.getKeys()) {
+        properties.put(key, expandedProperties.get(key));
+      }
+    }
+    LOG.debug("Using stored property snapshot of " + source);
+    return new PropertySnapshot(properties);
+  }
+
+  /**
+   * Stores a snapshot. Errors are logged and otherwise ignored.
+   *
+   * @param source The source of the snapshot.
+   * @param fingerprint The fingerprint of the files of the source, taken before they were loaded.
+   * @param properties The unexpanded properties.
+   * @param externalReferences The placeholders that were resolved outside of the properties and their values.
+   * @param snapshot The expanded properties.
+   * @param maskedKeys The keys of masked properties. Sources that contain one of them are not stored.
+   *                   Keys ending with <code>*</code> mask all properties with the preceding prefix.
+   */
+  public void write(URI source,
+                    Fingerprint fingerprint,
+                    Properties properties,
+                    Map<String, String> externalReferences,
+                    PropertySnapshot snapshot,
+                    Collection<String> maskedKeys) {
+    for (String maskedKey : maskedKeys) {
+      if (containsMaskedProperty(snapshot, maskedKey)) {
+        LOG.debug("Not storing property snapshot of " + source + ", it contains the masked property " + maskedKey);
+        remove(source);
+        return;
+      }
+    }
+    Set<String> dependentKeys = getDependentKeys(properties, externalReferences.keySet());
+    File file = getFile(source);
+    File tempFile = new File(directory, file.getName() + ".tmp" + Thread.currentThread().getId());
+    try {
+      if (directory.mkdirs()) {
+        setOwnerOnly(directory);
+      }
+      tempFile.delete();
+      if (!tempFile.createNewFile()) {
+        throw new IOException("Unable to create " + tempFile);
+      }
+      setOwnerOnly(tempFile);
+      DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        writeString(output, source.toString());
+        output.writeInt(fingerprint.paths.size());
+        for (int i = 0; i < fingerprint.paths.size(); i++) {
+          writeString(output, fingerprint.paths.get(i));
+          output.writeLong(fingerprint.modificationDates[i]);
+          output.writeLong(fingerprint.sizes[i]);
+        }
+        output.writeInt(externalReferences.size());
+        for (String placeholder : externalReferences.keySet()) {
+          writeString(output, placeholder);
+        }
+        byte[] digest = digest(externalReferences);
+        output.writeInt(digest.length);
+        output.write(digest);
+        output.writeInt(snapshot.size());
+        for (String key : snapshot.getKeys()) {
+          boolean expanded = !dependentKeys.contains(key);
+          output.writeBoolean(expanded);
+          writeString(output, key);
+          writeString(output, expanded ? snapshot.get(key) : properties.getProperty(key));
+        }
+      } finally {
+        output.close();
+      }
+      // replace the previous snapshot as a whole
+      if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+        throw new IOException("Unable to rename " + tempFile + " to " + file);
+      }
+    } catch (IOException e) {
+      tempFile.delete();
+      LOG.warn("Unable to store property snapshot of " + source + " in " + file + ": " + e.getMessage());
+    }
+  }
+
+  private boolean containsMaskedProperty(PropertySnapshot snapshot, String maskedKey) {
+    if (maskedKey.endsWith("*")) {
+      return !snapshot.getProperties(maskedKey.substring(0, maskedKey.length() - 1)).isEmpty();
+    }
+    return snapshot.containsKey(maskedKey);
+  }
+
+  /**
+   * Removes the stored snapshot of a source.
+   */
+  public void remove(URI source) {
+    File file = getFile(source);
+    if (file.isFile() && !file.delete()) {
+      LOG.warn("Unable to delete stored property snapshot " + file);
+    }
+  }
+
+  /**
+   * Returns the keys whose expanded value depends on a placeholder that was resolved outside
+   * of the properties, either directly or through other properties.
+   */
+  private Set<String> getDependentKeys(Properties properties, Set<String> externalPlaceholders) {
+    Map<String, List<String>> references = new HashMap<String, List<String>>();
+    for (String key : properties.stringPropertyNames()) {
+      references.put(key, PlaceholderTemplate.compile(properties.getProperty(key)).getReferences());
+    }
+    Set<String> dependentKeys = new HashSet<String>();
+    boolean changed = !externalPlaceholders.isEmpty();
+    while (changed) {
+      changed = false;
+      for (Map.Entry<String, List<String>> entry : references.entrySet()) {
+        if (dependentKeys.contains(entry.getKey())) {
+          continue;
+        }
+        for (String reference : entry.getValue()) {
+          boolean external = !references.containsKey(reference) && externalPlaceholders.contains(reference);
+          if (external || dependentKeys.contains(reference)) {
+            dependentKeys.add(entry.getKey());
+            changed = true;
+            break;
+          }
+        }
+      }
+    }
+    return dependentKeys;
+  }
+
+  private static byte[] digest(Map<String, String> externalReferences) throws IOException {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      for (String placeholder : new TreeSet<String>(externalReferences.keySet())) {
+        String value = externalReferences.get(placeholder);
+        digest.update(placeholder.getBytes(UTF_8));
+        // separates the values and distinguishes unresolved placeholders from empty values
+        digest.update(value != null ? (byte)1 : (byte)0);
+        if (value != null) {
+          digest.update(value.getBytes(UTF_8));
+        }
+        digest.update((byte)0);
+      }
+      return digest.digest();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(DIGEST_ALGORITHM + " is not supported");
+    }
+  }
+
+  private static void setOwnerOnly(File file) {
+    boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+      && file.setWritable(false, false) && file.setWritable(true, true);
+    if (file.isDirectory()) {
+      restricted &= file.setExecutable(false, false) && file.setExecutable(true, true);
+    }
+    if (!restricted) {
+      LOG.warn("Unable to restrict the access to " + file + " to its owner");
+    }
+  }
+
+  protected File getFile(URI source) {
+    String name = source.toString();
+    StringBuilder fileName = new StringBuilder(name.length() + 18);
+    for (int i = 0; i < name.length() && fileName.length() < 64; i++) {
+      char c = name.charAt(i);
+      fileName.append(Character.isLetterOrDigit(c) || c == '.' || c == '-' ? c : '_');
+    }
+    // the prefix may be ambiguous, the source itself is verified on read
+    fileName.append('-').append(Integer.toHexString(name.hashCode())).append(".snapshot");
+    return new File(directory, fileName.toString());
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * The modification dates and sizes of the files of a source.
+   */
+  public static class Fingerprint {
+
+    private List<String> paths;
+    private long[] modificationDates;
+    private long[] sizes;
+
+    Fingerprint(List<File> files) {
+      paths = new ArrayList<String>(files.size());
+      modificationDates = new long[files.size()];
+      sizes = new long[files.size()];
+      for (int i = 0; i < files.size(); i++) {
+        File file = files.get(i);
+        paths.add(file.getAbsolutePath());
+        modificationDates[i] = file.lastModified();
+        sizes[i] = file.length();
+      }
+    }
+
+    Fingerprint(List<String> somePaths, long[] someModificationDates, long[] someSizes) {
+      paths = Collections.unmodifiableList(somePaths);
+      modificationDates = someModificationDates;
+      sizes = someSizes;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof Fingerprint)) {
+        return false;
+      }
+      Fingerprint fingerprint = (Fingerprint)object;
+      return paths.equals(fingerprint.paths)
+        && Arrays.equals(modificationDates, fingerprint.modificationDates)
+        && Arrays.equals(sizes, fingerprint.sizes);
+    }
+
+    @Override
+    public int hashCode() {
+      return paths.hashCode();
+    }
+  }
+}
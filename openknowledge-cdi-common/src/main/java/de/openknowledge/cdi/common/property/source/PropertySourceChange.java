@@ -0,0 +1,57 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Describes the change of a reloaded property source. Fired as CDI event qualified with
+ * {@link de.openknowledge.cdi.common.qualifier.Updated}. Example:
+ * <pre>
+ *  public void propertiesChanged(&#064;Observes &#064;Updated PropertySourceChange change) {...}
+ * </pre>
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertySourceChange {
+
+  private URI source;
+  private Set<String> changedKeys;
+
+  public PropertySourceChange(URI aSource, Set<String> someChangedKeys) {
+    source = aSource;
+    changedKeys = Collections.unmodifiableSet(someChangedKeys);
+  }
+
+  public URI getSource() {
+    return source;
+  }
+
+  /**
+   * @return The keys that have been added, removed or modified.
+   */
+  public Set<String> getChangedKeys() {
+    return changedKeys;
+  }
+
+  @Override
+  public String toString() {
+    return "PropertySourceChange[" + source + ", " + changedKeys + "]";
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.net.URI;
+
+/**
+ *
+ * Gets notified by a {@link ReloadablePropertySourceLoader} when a watched source has changed.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public interface PropertySourceListener {
+
+  /**
+   *
+   * Called when the content of the given resource has changed.
+   *
+   * @param resourceName The name/path/identification of the changed resource.
+   */
+  public void sourceChanged(URI resourceName);
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.net.URI;
+
+/**
+ *
+ * A {@link PropertySourceLoader} that is able to detect changes of its sources.
+ * The {@link PropertyProvider} registers a listener for every source it has
+ * loaded through such a loader and reloads the source when it is notified.
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public interface ReloadablePropertySourceLoader extends PropertySourceLoader {
+
+  /**
+   *
+   * Starts watching the given resource for changes. Implementations may
+   * decide to ignore the request, i.e. when watching is disabled.
+   *
+   * @param resourceName The name/path/identification of the resource.
+   * @param listener The listener to notify on changes.
+   */
+  public void watch(URI resourceName, PropertySourceListener listener);
+
+}
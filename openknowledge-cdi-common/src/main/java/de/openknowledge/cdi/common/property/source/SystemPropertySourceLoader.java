@@ -0,0 +1,57 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import java.net.URI;
+import java.util.Properties;
+
+/**
+ * A property source loader that provides the java system properties. Mostly useful
+ * as a layer of a layered source (see {@link DefaultPropertyProvider}).
+ * <p/>
+ * Processes sources that start with <code>system:</code>. The scheme specific part is a key prefix
+ * with an optional trailing <code>*</code>, <code>*</code> selects all java system properties.
+ * <pre>
+ *  system:*             - all system properties
+ *  system:app.*         - all system properties starting with app.
+ * </pre>
+ *
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class SystemPropertySourceLoader extends AbstractPropertySourceLoader {
+
+  public static final String SYSTEM_SCHEME = "system";
+
+  public boolean supports(URI source) {
+    return SYSTEM_SCHEME.equals(source.getScheme());
+  }
+
+  public Properties load(URI resource) {
+    String keyPrefix = resource.getSchemeSpecificPart();
+    if (keyPrefix.endsWith("*")) {
+      keyPrefix = keyPrefix.substring(0, keyPrefix.length() - 1);
+    }
+    Properties properties = new Properties();
+    for (String key : System.getProperties().stringPropertyNames()) {
+      String value = System.getProperty(key);
+      if (value != null && key.startsWith(keyPrefix)) {
+        properties.setProperty(key, value);
+      }
+    }
+    return properties;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.openknowledge.cdi.common.property.test.configuration.FrameworkSettings;
+import de.openknowledge.cdi.common.property.test.configuration.TestSettings;
+import de.openknowledge.cdi.test.CdiJunit4TestRunner;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@RunWith(CdiJunit4TestRunner.class)
+public class ConfigurationObjectInjectionTest {
+
+  @Inject
+  @ConfigurationObject(prefix = "framework.property", source = "test.properties")
+  private FrameworkSettings frameworkSettings;
+
+  @Inject
+  @ConfigurationObject(source = "test.properties")
+  private TestSettings testSettings;
+
+  @Test
+  public void classIsBound() {
+    assertEquals(123, frameworkSettings.getOne());
+    assertEquals(Long.valueOf(12345), frameworkSettings.getTwo());
+    assertEquals("default", frameworkSettings.getThree());
+  }
+
+  @Test
+  public void interfaceIsBound() {
+    assertEquals("successful", testSettings.getTestString());
+    assertEquals(50, testSettings.getTestInt());
+    assertTrue(testSettings.isTestBoolean());
+    assertEquals("successful/50", testSettings.chainedReference());
+    assertNull(testSettings.getMissing());
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.openknowledge.cdi.common.property.source.FilePropertySourceLoader;
+import de.openknowledge.cdi.common.property.source.PropertySourceChange;
+import de.openknowledge.cdi.common.property.test.filebased.PropertyChangeObserver;
+import de.openknowledge.cdi.common.property.test.filebased.ReloadablePropertyTestBean;
+import de.openknowledge.cdi.common.qualifier.Current;
+import de.openknowledge.cdi.test.CdiJunit4TestRunner;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@RunWith(CdiJunit4TestRunner.class)
+public class FileReloadPropertyTest {
+
+  private static final File FILE = new File("target/FileReloadPropertyTest.properties");
+
+  @Inject
+  private Instance<ReloadablePropertyTestBean> testBeans;
+
+  @Inject
+  private PropertyChangeObserver observer;
+
+  @Inject
+  @Current
+  private ApplicationProperties applicationProperties;
+
+  @Inject
+  @Property(name = "reloadedString", source = "file:target/FileReloadPropertyTest.properties")
+  private DynamicProperty<String> dynamicString;
+
+  @Inject
+  @Property(name = "reloadedInt", defaultValue = "42", source = "file:target/FileReloadPropertyTest.properties")
+  private DynamicProperty<Integer> dynamicInt;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    FILE.getParentFile().mkdirs();
+    write("reloadedString=initial\nunchangedString=unchanged\n");
+    System.setProperty(FilePropertySourceLoader.WATCH_INTERVAL_PROPERTY, "50");
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    System.clearProperty(FilePropertySourceLoader.WATCH_INTERVAL_PROPERTY);
+  }
+
+  @Test
+  public void reloadChangedFile() throws Exception {
+    long reads = applicationProperties.getStatistics().getReadCounts().get("reloadedString");
+    assertEquals("initial", dynamicString.get());
+    assertEquals("initial", dynamicString.get());
+    assertEquals(reads + 2, applicationProperties.getStatistics().getReadCounts().get("reloadedString").longValue());
+    assertEquals("initial", testBeans.get().getReloadedStringProperty());
+    assertEquals(Integer.valueOf(42), dynamicInt.get());
+    assertSame(dynamicInt.get(), dynamicInt.get());
+
+    write("reloadedString=changed value\nunchangedString=unchanged\naddedString=added\n");
+
+    PropertySourceChange change = observer.awaitChange(5000);
+    assertNotNull("no change event received", change);
+    assertEquals(new TreeSet<String>(Arrays.asList("addedString", "reloadedString")), change.getChangedKeys());
+    assertEquals("changed value", testBeans.get().getReloadedStringProperty());
+    assertEquals("changed value", dynamicString.get());
+
+    write("reloadedString=changed value\nunchangedString=unchanged\naddedString=added\nreloadedInt=invalid\n");
+
+    change = observer.awaitChange(5000);
+    assertNotNull("no change event received", change);
+    assertEquals(Collections.singleton("reloadedInt"), change.getChangedKeys());
+    // the value that cannot be converted is ignored
+    assertEquals(Integer.valueOf(42), dynamicInt.get());
+    assertEquals(Integer.valueOf(42), dynamicInt.get());
+  }
+
+  private static void write(String content) throws IOException {
+    FileOutputStream out = new FileOutputStream(FILE);
+    try {
+      out.write(content.getBytes("ISO-8859-1"));
+    } finally {
+      out.close();
+    }
+  }
+}
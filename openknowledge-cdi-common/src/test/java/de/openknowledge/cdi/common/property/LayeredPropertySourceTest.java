@@ -0,0 +1,86 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import javax.inject.Inject;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.openknowledge.cdi.test.CdiJunit4TestRunner;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@PropertySource("system:testString|file:target/LayeredPropertySourceTest.properties|test.properties")
+@RunWith(CdiJunit4TestRunner.class)
+public class LayeredPropertySourceTest {
+
+  private static final File FILE = new File("target/LayeredPropertySourceTest.properties");
+
+  @Inject
+  @Property(name = "testString")
+  private String systemValue;
+
+  @Inject
+  @Property(name = "testInt")
+  private int fileValue;
+
+  @Inject
+  @Property(name = "testBoolean")
+  private boolean classpathValue;
+
+  @Inject
+  @Property(name = "backwardsReference")
+  private String expandedValue;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    FILE.getParentFile().mkdirs();
+    FileOutputStream out = new FileOutputStream(FILE);
+    try {
+      out.write("testInt=99\n".getBytes("ISO-8859-1"));
+    } finally {
+      out.close();
+    }
+    System.setProperty("testString", "system");
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    System.clearProperty("testString");
+  }
+
+  @Test
+  public void firstLayerWins() {
+    assertEquals("system", systemValue);
+    assertEquals(99, fileValue);
+    assertEquals(true, classpathValue);
+  }
+
+  @Test
+  public void placeholdersAreExpandedAcrossLayers() {
+    assertEquals("99", expandedValue);
+  }
+}
@@ -40,9 +40,18 @@ public class PropertyExpansionTest {
   @Property(name = "backwardsReference", source = "test.properties")
    private int backwardsReference;
 
+  @Inject
+  @Property(name = "chainedReference", source = "test.properties")
+  private String chainedReference;
+
   @Test
   public void testSystemPropertyExpansion() {
     assertEquals(System.getProperty("java.io.tmpdir"), systemProperty);
     assertEquals(50, backwardsReference);
   }
+
+  @Test
+  public void testChainedExpansion() {
+    assertEquals("successful/50", chainedReference);
+  }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.openknowledge.cdi.common.property.test.filebased.PreloadedPropertyTestBean;
+import de.openknowledge.cdi.test.CdiJunit4TestRunner;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@RunWith(CdiJunit4TestRunner.class)
+public class PropertyPreloadTest {
+
+  private static final File FILE = new File("target/PropertyPreloadTest.properties");
+
+  @Inject
+  private Instance<PreloadedPropertyTestBean> testBeans;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    FILE.getParentFile().mkdirs();
+    FileOutputStream out = new FileOutputStream(FILE);
+    try {
+      out.write("preloadedString=preloaded\n".getBytes("ISO-8859-1"));
+    } finally {
+      out.close();
+    }
+    System.setProperty(PropertyPreloadExtension.PRELOAD_PROPERTY, "true");
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    System.clearProperty(PropertyPreloadExtension.PRELOAD_PROPERTY);
+  }
+
+  @Test
+  public void sourcesAreLoadedAtDeployment() {
+    // the source has been loaded during deployment, so the file is not needed anymore
+    assertTrue(FILE.delete());
+    assertEquals("preloaded", testBeans.get().getPreloadedStringProperty());
+  }
+}
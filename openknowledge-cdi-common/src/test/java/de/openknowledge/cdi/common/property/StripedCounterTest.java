@@ -0,0 +1,73 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class StripedCounterTest {
+
+  private static final int THREADS = 8;
+  private static final int INCREMENTS = 100000;
+
+  @Test
+  public void concurrentIncrementsAreCounted() throws InterruptedException {
+    final StripedCounter counter = new StripedCounter();
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[THREADS];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < INCREMENTS; j++) {
+            counter.increment();
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(THREADS * INCREMENTS, counter.get());
+  }
+
+  @Test
+  public void statisticsCountReadsPerProperty() {
+    PropertyStatistics statistics = new PropertyStatistics();
+    statistics.recordRead("a");
+    statistics.recordRead("a");
+    statistics.recordRead("b");
+    statistics.recordCacheHit();
+    statistics.recordCacheMiss();
+
+    assertEquals(Long.valueOf(2), statistics.getReadCounts().get("a"));
+    assertEquals(Long.valueOf(1), statistics.getReadCounts().get("b"));
+    assertEquals(0.5, statistics.getCacheHitRatio(), 0);
+  }
+}
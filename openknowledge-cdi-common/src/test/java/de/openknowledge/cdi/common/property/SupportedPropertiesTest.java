@@ -22,7 +22,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import javax.inject.Inject;
+import java.net.URI;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -37,6 +40,10 @@ public class SupportedPropertiesTest {
   @Current
   private ApplicationProperties properties;
 
+  @Inject
+  @Property(name = "testString", source = "test.properties")
+  private String testString;
+
   @Test
   public void testCurrentProperties() throws Exception {
 
@@ -51,4 +58,34 @@ public class SupportedPropertiesTest {
 
     fail("Property key 'testString' not found.");
   }
+
+  @Test
+  public void testRegisteredBinding() {
+    ApplicationProperty property = properties.getProperty("testString");
+    String binding = SupportedPropertiesTest.class.getName() + ".testString";
+    for (ApplicationPropertyBinding usage : property.getPropertyUsages()) {
+      if (usage.getBinding().equals(binding)) {
+        assertEquals("successful", usage.getValue());
+        assertNull(properties.getProperty("unknownProperty"));
+        return;
+      }
+    }
+
+    fail("Binding " + binding + " not registered.");
+  }
+
+  @Test
+  public void testStatistics() {
+    PropertyStatistics statistics = properties.getStatistics();
+    assertTrue(statistics.getReadCounts().get("testString") >= 1);
+    assertTrue(statistics.getCacheMisses() >= 1);
+    for (URI source : statistics.getSourceStatistics().keySet()) {
+      if (source.toString().endsWith("/test.properties")) {
+        assertEquals(1, statistics.getSourceStatistics().get(source).getLoadCount());
+        return;
+      }
+    }
+
+    fail("Source test.properties not loaded.");
+  }
 }
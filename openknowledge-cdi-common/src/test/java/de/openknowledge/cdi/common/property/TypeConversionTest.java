@@ -18,6 +18,8 @@ package de.openknowledge.cdi.common.property;
 
 import static org.junit.Assert.*;
 
+import java.math.BigDecimal;
+
 import javax.inject.Inject;
 
 import org.junit.Test;
@@ -32,12 +34,40 @@ import de.openknowledge.cdi.test.CdiJunit4TestRunner;
 public class TypeConversionTest {
 
   private CustomObject customObject;
+
+  @Inject
+  @Property(name = "custom.factory.name", defaultValue = "factoryValue")
+  private FactoryObject factoryObject;
+
+  @Inject
+  @Property(name = "custom.enum", defaultValue = "SECOND")
+  private CustomEnum customEnum;
+
+  @Inject
+  @Property(name = "custom.decimal", defaultValue = "12.50")
+  private BigDecimal decimal;
+
+  @Inject
+  @Property(name = "custom.long", defaultValue = "1234567890123")
+  private long longValue;
   
   @Test
   public void injectCustomObject() {
     assertNotNull(customObject);
     assertEquals("customValue", customObject.toString());
   }
+
+  @Test
+  public void injectFactoryMethodObjects() {
+    assertEquals("factoryValue", factoryObject.toString());
+    assertEquals(CustomEnum.SECOND, customEnum);
+  }
+
+  @Test
+  public void injectBuiltInTypes() {
+    assertEquals(new BigDecimal("12.50"), decimal);
+    assertEquals(1234567890123L, longValue);
+  }
   
   @Inject
   public void setCustomObject(@Property(name = "custom.object.name", defaultValue = "customValue") CustomObject customObject) {
@@ -60,4 +90,25 @@ public class TypeConversionTest {
       return value;
     }
   }
+
+  public static class FactoryObject {
+
+    private String value;
+
+    private FactoryObject(String value) {
+      this.value = value;
+    }
+
+    public static FactoryObject valueOf(String value) {
+      return new FactoryObject(value);
+    }
+
+    public String toString() {
+      return value;
+    }
+  }
+
+  public enum CustomEnum {
+    FIRST, SECOND
+  }
 }
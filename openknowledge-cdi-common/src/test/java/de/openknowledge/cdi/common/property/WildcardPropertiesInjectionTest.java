@@ -37,6 +37,10 @@ public class WildcardPropertiesInjectionTest {
   @Property(name = "framework.*", source = "test.properties")
   private Properties testProperty;
 
+  @Inject
+  @Property(name = "framework.property.t*", source = "test.properties")
+  private Properties narrowedTestProperty;
+
   @Test
   public void success() {
     assertEquals(2, testProperty.size());
@@ -45,4 +49,10 @@ public class WildcardPropertiesInjectionTest {
 
   }
 
+  @Test
+  public void narrowedWildcard() {
+    assertEquals(1, narrowedTestProperty.size());
+    assertEquals("12345", narrowedTestProperty.get("framework.property.two"));
+  }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import de.openknowledge.cdi.common.property.ConfigurationObject;
+import de.openknowledge.cdi.common.property.Property;
+
+/**
+ * Verifies the index written by the {@link PropertyIndexProcessor} during test compilation.
+ *
+ * @author Arne Limburg - open knowledge GmbH
+ */
+public class PropertyIndexTest {
+
+  @Property(name = "index.field")
+  private BigDecimal field;
+
+  @Property(name = "index.array")
+  private String[] array;
+
+  @Property(name = "index.secret.*", mask = true)
+  private Properties secrets;
+
+  @Test
+  public void indexContainsFieldsAndParameters() throws ClassNotFoundException {
+    PropertyIndex index = PropertyIndex.load();
+    assertFalse(index.isEmpty());
+    assertTrue(index.isIndexed(IndexedSubclass.class));
+
+    List<PropertyIndex.IndexedProperty> properties = index.getProperties(IndexedSubclass.class);
+    assertEquals(5, properties.size());
+    assertProperty("index.constructor", int.class, properties.get(0));
+    assertProperty("index.method", Long.class, properties.get(1));
+    assertProperty("index.field", BigDecimal.class, properties.get(2));
+    assertEquals("index.array", properties.get(3).getName());
+    assertNull(properties.get(3).loadType(getClass().getClassLoader()));
+    assertProperty("index.secret.*", Properties.class, properties.get(4));
+    assertTrue(properties.get(4).isMasked());
+    assertFalse(properties.get(2).isMasked());
+  }
+
+  @Test
+  public void indexContainsMaskedProperties() {
+    PropertyIndex index = PropertyIndex.load();
+    assertTrue(index.getMaskedProperties().contains("index.secret.*"));
+    assertFalse(index.getMaskedProperties().contains("index.field"));
+  }
+
+  @Test
+  public void indexContainsConfigurationObjects() throws ClassNotFoundException {
+    PropertyIndex index = PropertyIndex.load();
+    List<PropertyIndex.IndexedProperty> configurationObjects = index.getConfigurationObjects(ConfiguredType.class);
+    assertEquals(1, configurationObjects.size());
+    assertProperty("index", IndexedConfiguration.class, configurationObjects.get(0));
+    assertTrue(index.getProperties(ConfiguredType.class).isEmpty());
+    assertTrue(index.getConfigurationObjects(IndexedSubclass.class).isEmpty());
+  }
+
+  @Test
+  public void typesWithoutPropertiesAreIndexed() {
+    PropertyIndex index = PropertyIndex.load();
+    assertTrue(index.isIndexed(PropertyIndexTest.class));
+    assertTrue(index.getProperties(NoProperties.class).isEmpty());
+    assertTrue(index.isIndexed(NoProperties.class));
+    assertFalse(index.isIndexed(String.class));
+  }
+
+  private void assertProperty(String name, Class<?> type, PropertyIndex.IndexedProperty property)
+    throws ClassNotFoundException {
+    assertEquals(name, property.getName());
+    assertEquals(type, property.loadType(getClass().getClassLoader()));
+  }
+
+  public static class IndexedSubclass extends PropertyIndexTest {
+
+    public IndexedSubclass(@Property(name = "index.constructor") int value) {
+    }
+
+    public void setValue(@Property(name = "index.method") Long value) {
+    }
+  }
+
+  public static class NoProperties {
+  }
+
+  public static class ConfiguredType {
+
+    @ConfigurationObject(prefix = "index")
+    private IndexedConfiguration configuration;
+  }
+
+  public interface IndexedConfiguration {
+
+    String getValue();
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.openknowledge.cdi.common.property.ClassLevelPropertyInjectionTest;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class DefaultPropertyProviderTest {
+
+  private ExecutorService executor = Executors.newFixedThreadPool(8);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentRequestsShareOneLoad() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger loads = new AtomicInteger();
+    final DefaultPropertyProvider provider = new DefaultPropertyProvider() {
+      @Override
+      protected PropertySnapshot loadPropertiesFromLoader(URI source) {
+        loads.incrementAndGet();
+        await(release);
+        return PropertySnapshot.EMPTY;
+      }
+    };
+    final URI source = new URI("test.properties");
+
+    List<Future<PropertySnapshot>> results = new ArrayList<Future<PropertySnapshot>>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(new Callable<PropertySnapshot>() {
+        public PropertySnapshot call() {
+          return provider.getSnapshot(source);
+        }
+      }));
+    }
+    Thread.sleep(100);
+    release.countDown();
+
+    PropertySnapshot first = results.get(0).get(5, TimeUnit.SECONDS);
+    for (Future<PropertySnapshot> result : results) {
+      assertSame(first, result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void differentSourcesLoadInParallel() throws Exception {
+    final CountDownLatch bothLoading = new CountDownLatch(2);
+    final DefaultPropertyProvider provider = new DefaultPropertyProvider() {
+      @Override
+      protected PropertySnapshot loadPropertiesFromLoader(URI source) {
+        bothLoading.countDown();
+        await(bothLoading);
+        return PropertySnapshot.EMPTY;
+      }
+    };
+
+    Future<PropertySnapshot> first = executor.submit(loadTask(provider, new URI("first.properties")));
+    Future<PropertySnapshot> second = executor.submit(loadTask(provider, new URI("second.properties")));
+
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+    assertEquals(0, bothLoading.getCount());
+  }
+
+  @Test
+  public void preloadLoadsSourcesInParallel() throws Exception {
+    final CountDownLatch allLoading = new CountDownLatch(3);
+    DefaultPropertyProvider provider = new DefaultPropertyProvider() {
+      @Override
+      protected PropertySnapshot loadPropertiesFromLoader(URI source) {
+        allLoading.countDown();
+        await(allLoading);
+        return PropertySnapshot.EMPTY;
+      }
+    };
+    List<URI> sources = Arrays.asList(new URI("first.properties"),
+                                      new URI("second.properties"),
+                                      new URI("third.properties"));
+
+    Map<URI, Long> loadTimes = provider.preloadSources(sources, 3);
+
+    assertEquals(0, allLoading.getCount());
+    assertEquals(sources, new ArrayList<URI>(loadTimes.keySet()));
+    for (URI source : sources) {
+      assertSame(PropertySnapshot.EMPTY, provider.getSnapshot(source));
+    }
+  }
+
+  @Test
+  public void preloadReportsFailedSource() throws Exception {
+    DefaultPropertyProvider provider = new DefaultPropertyProvider() {
+      @Override
+      protected PropertySnapshot loadPropertiesFromLoader(URI source) {
+        if (source.getPath().startsWith("broken")) {
+          throw new IllegalArgumentException("Unsupported source reference " + source);
+        }
+        return PropertySnapshot.EMPTY;
+      }
+    };
+
+    try {
+      provider.preloadSources(Arrays.asList(new URI("valid.properties"), new URI("broken.properties")), 2);
+      fail("expected failure for broken.properties");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().endsWith("broken.properties"));
+    }
+  }
+
+  @Test
+  public void missingSourcesAreReported() throws Exception {
+    final FilePropertySourceLoader fileLoader = new FilePropertySourceLoader();
+    DefaultPropertyProvider provider = new DefaultPropertyProvider() {
+      @Override
+      protected PropertySourceLoader getSourceLoader(URI source) {
+        return fileLoader;
+      }
+    };
+    File existing = new File("target/DefaultPropertyProviderTest.properties");
+    existing.getParentFile().mkdirs();
+    existing.createNewFile();
+
+    provider.assertSourcesExist(Arrays.asList(existing.toURI()));
+    try {
+      provider.assertSourcesExist(Arrays.asList(existing.toURI(), new URI("file:target/missing.properties")));
+      fail("expected failure for missing.properties");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().endsWith("[file:target/missing.properties]"));
+    }
+  }
+
+  @Test
+  public void beanClassSourceIsResolvedOnce() throws Exception {
+    final AtomicInteger resolutions = new AtomicInteger();
+    DefaultPropertyProvider provider = new DefaultPropertyProvider() {
+      @Override
+      protected URI extractBeanClassSource(Class<?> beanClass) {
+        resolutions.incrementAndGet();
+        return super.extractBeanClassSource(beanClass);
+      }
+    };
+
+    URI source = provider.getBeanClassSource(ClassLevelPropertyInjectionTest.class);
+
+    assertEquals(new URI("/de/openknowledge/cdi/common/property/test.properties"), source);
+    assertSame(source, provider.getBeanClassSource(ClassLevelPropertyInjectionTest.class));
+    assertEquals(1, resolutions.get());
+  }
+
+  @Test
+  public void systemPropertiesAreCapturedUntilRefresh() {
+    String name = DefaultPropertyProviderTest.class.getName() + ".path";
+    DefaultPropertyProvider provider = new DefaultPropertyProvider();
+    System.setProperty(name, "/etc");
+    try {
+      assertEquals("file:!" + name + "!/app.properties", provider.expandSourceSystemProperties("file:${" + name + "}/app.properties"));
+
+      provider.refreshEnvironment();
+
+      assertEquals("file:/etc/app.properties", provider.expandSourceSystemProperties("file:${" + name + "}/app.properties"));
+    } finally {
+      System.clearProperty(name);
+    }
+  }
+
+  @Test
+  public void failedReloadKeepsSnapshot() throws Exception {
+    final PropertySnapshot loaded = new PropertySnapshot(Collections.singletonMap("key", "loaded"));
+    DefaultPropertyProvider provider = new DefaultPropertyProvider() {
+      @Override
+      protected PropertySnapshot loadPropertiesFromLoader(URI source) {
+        return loaded;
+      }
+
+      @Override
+      protected Properties readProperties(URI logicalSource, URI source, boolean watch) {
+        throw new IllegalStateException("unreadable");
+      }
+    };
+    URI source = new URI("reloaded.properties");
+    provider.getSnapshot(source);
+
+    provider.reloadProperties(source);
+
+    assertSame(loaded, provider.getSnapshot(source));
+  }
+
+  private static Callable<PropertySnapshot> loadTask(final DefaultPropertyProvider provider, final URI source) {
+    return new Callable<PropertySnapshot>() {
+      public PropertySnapshot call() {
+        return provider.getSnapshot(source);
+      }
+    };
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class DirectoryPropertySourceLoaderTest {
+
+  private static final File DIRECTORY = new File("target/DirectoryPropertySourceLoaderTest");
+
+  private final AtomicInteger parsedFiles = new AtomicInteger();
+  private DirectoryPropertySourceLoader loader;
+  private URI source = URI.create("dir:target/DirectoryPropertySourceLoaderTest");
+
+  @Before
+  public void setUp() throws IOException {
+    DIRECTORY.mkdirs();
+    for (File file : DIRECTORY.listFiles()) {
+      file.delete();
+    }
+    write("20-local.properties", "overridden=local\nlocal=local\n");
+    write("10-defaults.properties", "overridden=default\ndefault=default\n");
+    write("30-ignored.txt", "overridden=ignored\n");
+    System.setProperty(FilePropertySourceLoader.WATCH_INTERVAL_PROPERTY, "50");
+    loader = new DirectoryPropertySourceLoader() {
+      @Override
+      public void loadFromStream(Properties properties, InputStream inputStream) throws IOException {
+        parsedFiles.incrementAndGet();
+        super.loadFromStream(properties, inputStream);
+      }
+    };
+    System.clearProperty(FilePropertySourceLoader.WATCH_INTERVAL_PROPERTY);
+  }
+
+  @After
+  public void tearDown() {
+    loader.stopWatching();
+  }
+
+  @Test
+  public void filesAreMergedByName() {
+    assertTrue(loader.supports(source));
+    assertFalse(loader.supports(URI.create("file:target/DirectoryPropertySourceLoaderTest")));
+
+    Properties properties = loader.load(source);
+
+    assertEquals(3, properties.size());
+    assertEquals("local", properties.getProperty("overridden"));
+    assertEquals("default", properties.getProperty("default"));
+    assertEquals("local", properties.getProperty("local"));
+  }
+
+  @Test
+  public void onlyChangedFilesAreParsed() throws IOException {
+    loader.load(source);
+    assertEquals(2, parsedFiles.get());
+
+    write("20-local.properties", "overridden=changed local\n");
+    Properties properties = loader.load(source);
+
+    assertEquals(3, parsedFiles.get());
+    assertEquals("changed local", properties.getProperty("overridden"));
+    assertNull(properties.getProperty("local"));
+
+    new File(DIRECTORY, "20-local.properties").delete();
+    properties = loader.load(source);
+
+    assertEquals(3, parsedFiles.get());
+    assertEquals("default", properties.getProperty("overridden"));
+  }
+
+  @Test
+  public void addedFileIsDetected() throws Exception {
+    loader.load(source);
+    final CountDownLatch changed = new CountDownLatch(1);
+    loader.watch(source, new PropertySourceListener() {
+      public void sourceChanged(URI resourceName) {
+        changed.countDown();
+      }
+    });
+
+    write("30-added.properties", "added=added\n");
+
+    assertTrue(changed.await(5, TimeUnit.SECONDS));
+    assertEquals("added", loader.load(source).getProperty("added"));
+  }
+
+  @Test
+  public void fileAddedBeforeWatchIsDetected() throws Exception {
+    loader.load(source);
+    write("30-added.properties", "added=added\n");
+    final CountDownLatch changed = new CountDownLatch(1);
+    loader.watch(source, new PropertySourceListener() {
+      public void sourceChanged(URI resourceName) {
+        changed.countDown();
+      }
+    });
+
+    assertTrue(changed.await(5, TimeUnit.SECONDS));
+  }
+
+  private static void write(String name, String content) throws IOException {
+    FileOutputStream out = new FileOutputStream(new File(DIRECTORY, name));
+    try {
+      out.write(content.getBytes("ISO-8859-1"));
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class FilePropertySourceLoaderTest {
+
+  private static final File FILE = new File("target/FilePropertySourceLoaderTest.properties");
+
+  private FilePropertySourceLoader loader;
+  private URI source = URI.create("file:target/FilePropertySourceLoaderTest.properties");
+
+  @Before
+  public void setUp() throws IOException {
+    write("key=loaded\n");
+    System.setProperty(FilePropertySourceLoader.WATCH_INTERVAL_PROPERTY, "50");
+    loader = new FilePropertySourceLoader();
+    System.clearProperty(FilePropertySourceLoader.WATCH_INTERVAL_PROPERTY);
+  }
+
+  @After
+  public void tearDown() {
+    loader.stopWatching();
+  }
+
+  @Test
+  public void changeBeforeWatchIsDetected() throws Exception {
+    assertEquals("loaded", loader.load(source).getProperty("key"));
+
+    write("key=changed before watching\n");
+    final CountDownLatch changed = new CountDownLatch(1);
+    loader.watch(source, new PropertySourceListener() {
+      public void sourceChanged(URI resourceName) {
+        changed.countDown();
+      }
+    });
+
+    assertTrue(changed.await(5, TimeUnit.SECONDS));
+    assertEquals("changed before watching", loader.load(source).getProperty("key"));
+  }
+
+  private static void write(String content) throws IOException {
+    FileOutputStream out = new FileOutputStream(FILE);
+    try {
+      out.write(content.getBytes("ISO-8859-1"));
+    } finally {
+      out.close();
+    }
+  }
+}
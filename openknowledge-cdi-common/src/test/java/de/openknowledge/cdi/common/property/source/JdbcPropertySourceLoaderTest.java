@@ -0,0 +1,124 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class JdbcPropertySourceLoaderTest {
+
+  private static final String DATABASE = "jdbc:h2:mem:JdbcPropertySourceLoaderTest;DB_CLOSE_DELAY=-1";
+
+  private final AtomicInteger queries = new AtomicInteger();
+  private JdbcPropertySourceLoader loader;
+  private URI source = URI.create(DATABASE + "#tenant-a");
+
+  @Before
+  public void setUp() throws SQLException {
+    execute("CREATE TABLE PROPERTIES (NAMESPACE VARCHAR(50), PROPERTY_KEY VARCHAR(100), PROPERTY_VALUE VARCHAR(200))");
+    execute("INSERT INTO PROPERTIES VALUES ('tenant-a', 'testString', 'tenant a')");
+    execute("INSERT INTO PROPERTIES VALUES ('tenant-a', 'testInt', '50')");
+    execute("INSERT INTO PROPERTIES VALUES ('tenant-b', 'testString', 'tenant b')");
+    execute("INSERT INTO PROPERTIES VALUES ('tenant-a', NULL, 'no key')");
+    execute("INSERT INTO PROPERTIES VALUES ('tenant-a', 'testNull', NULL)");
+    System.setProperty(JdbcPropertySourceLoader.TIME_TO_LIVE_PROPERTY, "50");
+    loader = new JdbcPropertySourceLoader() {
+      @Override
+      protected Properties fetchProperties(URI resource) throws SQLException {
+        queries.incrementAndGet();
+        return super.fetchProperties(resource);
+      }
+    };
+    System.clearProperty(JdbcPropertySourceLoader.TIME_TO_LIVE_PROPERTY);
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    loader.stopWatching();
+    execute("DROP TABLE PROPERTIES");
+  }
+
+  @Test
+  public void namespaceIsLoaded() {
+    assertTrue(loader.supports(source));
+    assertFalse(loader.supports(URI.create("file:application.properties")));
+
+    Properties properties = loader.load(source);
+
+    assertEquals(2, properties.size());
+    assertEquals("tenant a", properties.getProperty("testString"));
+    assertEquals("50", properties.getProperty("testInt"));
+    assertEquals("tenant b", loader.load(URI.create(DATABASE + "#tenant-b")).getProperty("testString"));
+  }
+
+  @Test
+  public void loadedNamespaceIsCached() throws SQLException {
+    loader.load(source).setProperty("testString", "modified");
+    execute("UPDATE PROPERTIES SET PROPERTY_VALUE = 'changed' WHERE PROPERTY_KEY = 'testString'");
+
+    assertEquals("tenant a", loader.load(source).getProperty("testString"));
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  public void watchedNamespaceIsRefreshed() throws Exception {
+    loader.load(source);
+    final CountDownLatch changed = new CountDownLatch(1);
+    loader.watch(source, new PropertySourceListener() {
+      public void sourceChanged(URI resourceName) {
+        changed.countDown();
+      }
+    });
+
+    execute("DELETE FROM PROPERTIES WHERE PROPERTY_KEY = 'testInt'");
+
+    assertTrue(changed.await(5, TimeUnit.SECONDS));
+    Properties properties = loader.load(source);
+    assertNull(properties.getProperty("testInt"));
+    assertEquals("tenant a", properties.getProperty("testString"));
+  }
+
+  private static void execute(String sql) throws SQLException {
+    Connection connection = DriverManager.getConnection(DATABASE);
+    try {
+      Statement statement = connection.createStatement();
+      statement.execute(sql);
+      statement.close();
+    } finally {
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertyExpanderTest {
+
+  private static final PlaceholderTemplate.Resolver MISSING = new PlaceholderTemplate.Resolver() {
+    public String resolve(String placeholder) {
+      return "!" + placeholder + "!";
+    }
+  };
+
+  @Test
+  public void expandReferences() {
+    Properties properties = new Properties();
+    properties.setProperty("a", "${b}-${c}");
+    properties.setProperty("b", "${c}${c}");
+    properties.setProperty("c", "x");
+    properties.setProperty("d", "${missing} and ${unterminated");
+
+    PropertySnapshot expanded = new PropertyExpander(properties, MISSING).expand();
+
+    assertEquals("xx-x", expanded.get("a"));
+    assertEquals("xx", expanded.get("b"));
+    assertEquals("x", expanded.get("c"));
+    assertEquals("!missing! and ${unterminated", expanded.get("d"));
+  }
+
+  @Test
+  public void rejectCycles() {
+    Properties properties = new Properties();
+    properties.setProperty("a", "${b}");
+    properties.setProperty("b", "${c}");
+    properties.setProperty("c", "${a}");
+
+    try {
+      new PropertyExpander(properties, MISSING).expand();
+      fail("cycle not detected");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(" -> "));
+    }
+  }
+
+  @Test
+  public void rejectSelfReference() {
+    Properties properties = new Properties();
+    properties.setProperty("a", "prefix${a}");
+
+    try {
+      new PropertyExpander(properties, MISSING).expand();
+      fail("cycle not detected");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().endsWith("a -> a"));
+    }
+  }
+}
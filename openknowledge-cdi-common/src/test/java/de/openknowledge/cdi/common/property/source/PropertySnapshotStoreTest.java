@@ -0,0 +1,191 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertySnapshotStoreTest {
+
+  private static final File DIRECTORY = new File("target/PropertySnapshotStoreTest");
+  private static final File SOURCE_FILE = new File(DIRECTORY, "source.properties");
+
+  private PropertySnapshotStore store = new PropertySnapshotStore(DIRECTORY);
+  private URI source = SOURCE_FILE.toURI();
+  private Map<String, String> systemProperties = new HashMap<String, String>();
+  private PlaceholderTemplate.Resolver resolver = new PlaceholderTemplate.Resolver() {
+    public String resolve(String placeholder) {
+      return systemProperties.get(placeholder);
+    }
+  };
+
+  @Before
+  public void setUp() throws IOException {
+    DIRECTORY.mkdirs();
+    for (File file : DIRECTORY.listFiles()) {
+      file.delete();
+    }
+    write(SOURCE_FILE, "key=${user.home}/value\n");
+    systemProperties.put("user.home", "/home");
+  }
+
+  @Test
+  public void storedSnapshotIsRead() {
+    store(new HashMap<String, String>(systemProperties));
+
+    PropertySnapshot snapshot = store.read(source, store.fingerprint(files()), resolver);
+
+    assertNotNull(snapshot);
+    assertEquals(1, snapshot.size());
+    assertEquals("/home/value", snapshot.get("key"));
+  }
+
+  @Test
+  public void changedFileInvalidatesSnapshot() throws IOException {
+    store(new HashMap<String, String>(systemProperties));
+
+    write(SOURCE_FILE, "key=changed\n");
+
+    assertNull(store.read(source, store.fingerprint(files()), resolver));
+  }
+
+  @Test
+  public void changedExternalReferenceInvalidatesSnapshot() {
+    store(new HashMap<String, String>(systemProperties));
+
+    systemProperties.put("user.home", "/root");
+
+    assertNull(store.read(source, store.fingerprint(files()), resolver));
+  }
+
+  @Test
+  public void corruptSnapshotIsIgnored() throws IOException {
+    store(new HashMap<String, String>(systemProperties));
+    for (File file : DIRECTORY.listFiles()) {
+      if (file.getName().endsWith(".snapshot")) {
+        write(file, "corrupt");
+      }
+    }
+
+    assertNull(store.read(source, store.fingerprint(files()), resolver));
+  }
+
+  @Test
+  public void externalValuesAreNotStored() throws IOException {
+    systemProperties.put("user.home", "/secret-home");
+    store(new HashMap<String, String>(systemProperties));
+
+    assertFalse(read(store.getFile(source)).contains("/secret-home"));
+    PropertySnapshot snapshot = store.read(source, store.fingerprint(files()), resolver);
+    assertNotNull(snapshot);
+    assertEquals("/secret-home/value", snapshot.get("key"));
+  }
+
+  @Test
+  public void snapshotWithMaskedPropertyIsNotStored() {
+    store.write(source,
+      store.fingerprint(files()),
+      properties(),
+      new HashMap<String, String>(systemProperties),
+      snapshot("/home/value"),
+      Collections.singleton("key"));
+
+    assertFalse(store.getFile(source).exists());
+  }
+
+  @Test
+  public void snapshotWithMaskedWildcardIsNotStored() {
+    store.write(source,
+      store.fingerprint(files()),
+      properties(),
+      new HashMap<String, String>(systemProperties),
+      snapshot("/home/value"),
+      Collections.singleton("k*"));
+
+    assertFalse(store.getFile(source).exists());
+  }
+
+  @Test
+  public void missingSnapshotIsIgnored() {
+    assertNull(store.read(source, store.fingerprint(files()), resolver));
+  }
+
+  private void store(Map<String, String> externalReferences) {
+    store.write(source,
+      store.fingerprint(files()),
+      properties(),
+      externalReferences,
+      snapshot(externalReferences.get("user.home") + "/value"),
+      Collections.<String>emptySet());
+  }
+
+  private Properties properties() {
+    Properties properties = new Properties();
+    properties.setProperty("key", "${user.home}/value");
+    return properties;
+  }
+
+  private List<File> files() {
+    return Collections.singletonList(SOURCE_FILE);
+  }
+
+  private PropertySnapshot snapshot(String value) {
+    return new PropertySnapshot(Collections.singletonMap("key", value));
+  }
+
+  private static String read(File file) throws IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      byte[] content = new byte[(int)file.length()];
+      int length = 0;
+      while (length < content.length) {
+        length += in.read(content, length, content.length - length);
+      }
+      return new String(content, "ISO-8859-1");
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void write(File file, String content) throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content.getBytes("ISO-8859-1"));
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+public class PropertySnapshotTest {
+
+  @Test
+  public void lookup() {
+    Map<String, String> properties = new HashMap<String, String>();
+    for (int i = 0; i < 1000; i++) {
+      properties.put("key." + i, "value." + i);
+    }
+    // "Aa" and "BB" share the same hash code
+    properties.put("Aa", "first");
+    properties.put("BB", "second");
+
+    PropertySnapshot snapshot = new PropertySnapshot(properties);
+
+    assertEquals(1002, snapshot.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("value." + i, snapshot.get("key." + i));
+    }
+    assertEquals("first", snapshot.get("Aa"));
+    assertEquals("second", snapshot.get("BB"));
+    assertNull(snapshot.get("missing"));
+    assertEquals("default", snapshot.get("missing", "default"));
+    assertNull(PropertySnapshot.EMPTY.get("missing"));
+  }
+
+  @Test
+  public void prefixQuery() {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("framework.b", "2");
+    properties.put("framework.a", "1");
+    properties.put("frameworks", "none");
+    properties.put("frame", "none");
+
+    PropertySnapshot snapshot = new PropertySnapshot(properties);
+
+    assertEquals(Arrays.asList("framework.a", "framework.b"),
+                 Arrays.asList(snapshot.getProperties("framework.").keySet().toArray()));
+    assertEquals(4, snapshot.getProperties("").size());
+    assertEquals(0, snapshot.getProperties("other").size());
+    assertEquals("2", snapshot.toProperties().getProperty("framework.b"));
+  }
+}
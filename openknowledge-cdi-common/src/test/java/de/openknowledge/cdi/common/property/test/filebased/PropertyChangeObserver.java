@@ -0,0 +1,44 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.common.property.test.filebased;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import de.openknowledge.cdi.common.property.source.PropertySourceChange;
+import de.openknowledge.cdi.common.qualifier.Updated;
+
+/**
+ * @author Jens Schumann - open knowledge GmbH
+ */
+@ApplicationScoped
+public class PropertyChangeObserver {
+
+  private BlockingQueue<PropertySourceChange> changes = new LinkedBlockingQueue<PropertySourceChange>();
+
+  public void propertiesChanged(@Observes @Updated PropertySourceChange change) {
+    changes.add(change);
+  }
+
+  public PropertySourceChange awaitChange(long timeoutMillis) throws InterruptedException {
+    return changes.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -46,6 +46,11 @@ import java.util.Properties;
  * If CDI does not provide properties standard quartz configuration
  * applies.
  *
+ * <p/>
+ * The {@link de.openknowledge.cdi.scope.ThreadScoped} scope of the
+ * worker threads is bound to the job execution by the
+ * {@link ThreadScopeJobListener}.
+ *
  * @author Arne Limburg - open knowledge GmbH
  */
 @ApplicationScoped
@@ -56,6 +61,9 @@ public class CdiSchedulerFactory extends StdSchedulerFactory {
   @Inject
   private JobFactory jobFactory;
 
+  @Inject
+  private ThreadScopeJobListener threadScopeJobListener;
+
   @Inject
   @Property(name = "org.quartz.*", mask = true)
   private Properties properties;
@@ -65,6 +73,7 @@ public class CdiSchedulerFactory extends StdSchedulerFactory {
   public Scheduler createScheduler() {
     try {
       Scheduler scheduler = super.getScheduler();
+      scheduler.getListenerManager().addJobListener(threadScopeJobListener);
       scheduler.start();
       LOG.debug("Providing scheduler " + scheduler);
       return scheduler;
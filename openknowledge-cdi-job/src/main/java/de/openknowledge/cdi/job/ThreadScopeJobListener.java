@@ -0,0 +1,62 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.job;
+
+import javax.inject.Inject;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+
+import de.openknowledge.cdi.scope.ThreadContextExtension;
+import de.openknowledge.cdi.scope.ThreadScoped;
+
+/**
+ * Bounds the {@link ThreadScoped} scope of the Quartz worker threads by the job execution.
+ * The {@link ThreadScoped} instances that were created by a job are destroyed when the job is finished.
+ * The listener is registered by the {@link CdiSchedulerFactory}.
+ *
+ * @author Arne Limburg - open knowledge GmbH
+ */
+public class ThreadScopeJobListener implements JobListener {
+
+  public static final String NAME = ThreadScopeJobListener.class.getName();
+
+  @Inject
+  private ThreadContextExtension threadContextExtension;
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void jobToBeExecuted(JobExecutionContext context) {
+    threadContextExtension.getContext().begin();
+  }
+
+  @Override
+  public void jobExecutionVetoed(JobExecutionContext context) {
+    threadContextExtension.getContext().end();
+  }
+
+  @Override
+  public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+    threadContextExtension.getContext().end();
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.job;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.PreDestroy;
+
+import de.openknowledge.cdi.scope.ThreadScoped;
+
+@ThreadScoped
+public class JobResource {
+
+  static final CountDownLatch DESTROYED = new CountDownLatch(1);
+
+  public void use() {
+  }
+
+  @PreDestroy
+  public void close() {
+    DESTROYED.countDown();
+  }
+}
@@ -21,6 +21,8 @@ import static org.junit.Assert.assertTrue;
 import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 
 import de.openknowledge.cdi.test.CdiJunit4TestRunner;
@@ -43,12 +45,14 @@ public class JobTest {
   private TestJob testJob;
 
   @Test(timeout = 10000)
-  public void scheduleJob() throws SchedulerException {
+  public void scheduleJob() throws SchedulerException, InterruptedException {
     JobDetail job = newJob(TestJob.class).build();
     Trigger trigger = newTrigger().startNow().build();
     assertFalse(testJob.isFinished());
     scheduler.scheduleJob(job, trigger);
     testJob.setStarted();
     assertTrue(testJob.isFinished());
+    // the thread scope of the worker thread ends with the job
+    assertTrue(JobResource.DESTROYED.await(5, TimeUnit.SECONDS));
   }
 }
@@ -17,6 +17,7 @@
 package de.openknowledge.cdi.job;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
@@ -25,6 +26,9 @@ import org.quartz.JobExecutionException;
 @ApplicationScoped
 public class TestJob implements Job {
 
+  @Inject
+  private JobResource jobResource;
+
   private boolean isStarted = false;
   private boolean isFinished = false;
 
@@ -45,6 +49,7 @@ public class TestJob implements Job {
 
   @Override
   public synchronized void execute(JobExecutionContext executionContext) throws JobExecutionException {
+    jobResource.use();
     isFinished = true;
     notifyAll();
   }
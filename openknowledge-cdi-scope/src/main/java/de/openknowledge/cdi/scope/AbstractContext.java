@@ -17,6 +17,9 @@
 package de.openknowledge.cdi.scope;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.enterprise.context.spi.Context;
 import javax.enterprise.context.spi.Contextual;
@@ -24,6 +27,13 @@ import javax.enterprise.context.spi.CreationalContext;
 
 /**
  * A baseclass for {@link Context}s.
+ * <p/>
+ * Contextual instances are looked up in the map provided by {@link #getContextualMap(CreationalContext)}
+ * and stored by {@link #createInstance(Contextual, CreationalContext, Map)} when missing.
+ * The stored {@link Instance} is a placeholder, the contextual instance is created afterwards,
+ * so subclasses that are accessed concurrently may override {@link #createInstance(Contextual, CreationalContext, Map)}
+ * to store the placeholder while holding a lock without calling the contextual under that lock.
+ * Every instance is created only once, concurrent callers wait for the creation.
  *
  * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
  */
@@ -38,42 +48,110 @@ public abstract class AbstractContext implements Context {
   public <T> T get(Contextual<T> contextual, CreationalContext<T> creationalContext) {
     Map<Contextual<?>, Instance<?>> instances = getContextualMap(creationalContext);
     Instance<T> instance = getInstance(contextual, instances);
-    if (instance != null) {
-      return instance.get();
+    if (instance == null) {
+      if (creationalContext == null) {
+        return null;
+      }
+      instance = createInstance(contextual, creationalContext, instances);
     }
-    if (creationalContext == null) {
-      return null;
-    }
-    instance = new Instance<T>(contextual, creationalContext);
-    instances.put(contextual, instance);
     return instance.get();
   }
 
   protected abstract Map<Contextual<?>, Instance<?>> getContextualMap(CreationalContext<?> creationalContext);
 
+  /**
+   * Stores a new instance in the given map. The contextual instance is created
+   * by the first call of {@link Instance#get()}.
+   *
+   * @param contextual The contextual to create.
+   * @param creationalContext The creational context.
+   * @param instances The map from {@link #getContextualMap(CreationalContext)}, that did not contain the contextual.
+   * @return The stored instance.
+   */
+  protected <T> Instance<T> createInstance(Contextual<T> contextual,
+                                           CreationalContext<T> creationalContext,
+                                           Map<Contextual<?>, Instance<?>> instances) {
+    Instance<T> instance = new Instance<T>(contextual, creationalContext);
+    instances.put(contextual, instance);
+    return instance;
+  }
+
+  /**
+   * Returns the stored instance. Instances whose creation failed are ignored, so they are replaced
+   * and the next call creates the instance again.
+   */
   @SuppressWarnings("unchecked")
-  private <T> Instance<T> getInstance(Contextual<T> requestedContextual, Map<Contextual<?>, Instance<?>> instances) {
-    return (Instance<T>) instances.get(requestedContextual);
+  protected <T> Instance<T> getInstance(Contextual<T> requestedContextual, Map<Contextual<?>, Instance<?>> instances) {
+    Instance<T> instance = (Instance<T>) instances.get(requestedContextual);
+    return instance != null && !instance.failed ? instance : null;
   }
 
+  /**
+   * A contextual instance that is created by the first call of {@link #get()}.
+   * An instance that is destroyed while it is created is destroyed by the creating thread
+   * as soon as the creation is completed.
+   */
   protected static class Instance<T> {
 
     private Contextual<T> contextual;
     private CreationalContext<T> creationalContext;
-    private T instance;
+    private FutureTask<T> creation;
+    private volatile Thread creatingThread;
+    private volatile boolean failed;
+    private boolean created;
+    private boolean destroyed;
 
     public Instance(Contextual<T> contextual, CreationalContext<T> creationalContext) {
       this.contextual = contextual;
       this.creationalContext = creationalContext;
-      this.instance = contextual.create(creationalContext);
+      this.creation = new FutureTask<T>(new Callable<T>() {
+        public T call() {
+          return create();
+        }
+      });
     }
-    
+
     public T get() {
-      return this.instance;
+      if (!this.creation.isDone()) {
+        if (this.creatingThread == Thread.currentThread()) {
+          throw new IllegalStateException("Circular creation of " + this.contextual);
+        }
+        // does nothing, if another thread is creating the instance
+        this.creation.run();
+      }
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            return this.creation.get();
+          } catch (InterruptedException e) {
+            // the creation is not interruptible
+            interrupted = true;
+          }
+        }
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException)e.getCause();
+        } else if (e.getCause() instanceof Error) {
+          throw (Error)e.getCause();
+        }
+        throw new IllegalStateException("Unable to create " + this.contextual, e.getCause());
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
     }
 
     public void destroy() {
-      this.contextual.destroy(this.instance, this.creationalContext);
+      synchronized (this) {
+        this.destroyed = true;
+        if (!this.created) {
+          // not created yet or the creation failed
+          return;
+        }
+      }
+      this.contextual.destroy(get(), this.creationalContext);
     }
     
     protected Contextual<T> getContextual() {
@@ -83,5 +161,29 @@ public abstract class AbstractContext implements Context {
     protected CreationalContext<T> getCreationalContext() {
       return creationalContext;
     }
+
+    private T create() {
+      this.creatingThread = Thread.currentThread();
+      T instance;
+      try {
+        instance = this.contextual.create(this.creationalContext);
+      } catch (RuntimeException e) {
+        this.failed = true;
+        throw e;
+      } catch (Error e) {
+        this.failed = true;
+        throw e;
+      } finally {
+        this.creatingThread = null;
+      }
+      synchronized (this) {
+        if (!this.destroyed) {
+          this.created = true;
+          return instance;
+        }
+      }
+      this.contextual.destroy(instance, this.creationalContext);
+      return instance;
+    }
   }
 }
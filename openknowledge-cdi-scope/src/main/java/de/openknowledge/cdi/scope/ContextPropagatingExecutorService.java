@@ -0,0 +1,87 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.scope;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.BeanManager;
+
+/**
+ * An executor service that runs every task with the scopes of the thread that submitted it.
+ * A {@link ContextSnapshot} is taken on submission and installed in the executing thread
+ * for the time of the task. The contexts are resolved once, when the executor is created.
+ * <p/>
+ * The executor does not make any assumptions about the threads of the wrapped executor, so it may
+ * wrap thread pools as well as executors that start a new (virtual) thread per task.
+ * It may also be used as executor of asynchronous <code>CompletableFuture</code> stages.
+ *
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+public class ContextPropagatingExecutorService extends AbstractExecutorService {
+
+  private ExecutorService delegate;
+  private ThreadContext threadContext;
+  private DefaultDestroyableContext[] destroyableContexts;
+
+  /**
+   * @param delegate The executor that runs the tasks.
+   * @param beanManager The bean manager.
+   * @param destroyableScopes The destroyable scopes to propagate in addition to the {@link ThreadScoped} scope.
+   */
+  public ContextPropagatingExecutorService(ExecutorService delegate,
+                                           BeanManager beanManager,
+                                           Class<? extends Annotation>... destroyableScopes) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate may not be null");
+    }
+    if (beanManager == null) {
+      throw new IllegalArgumentException("beanManager may not be null");
+    }
+    this.delegate = delegate;
+    this.threadContext = ContextSnapshot.getThreadContext(beanManager);
+    this.destroyableContexts = ContextSnapshot.getDestroyableContexts(beanManager, destroyableScopes);
+  }
+
+  public void execute(Runnable command) {
+    this.delegate.execute(ContextSnapshot.capture(this.threadContext, this.destroyableContexts).wrap(command));
+  }
+
+  public void shutdown() {
+    this.delegate.shutdown();
+  }
+
+  public List<Runnable> shutdownNow() {
+    return this.delegate.shutdownNow();
+  }
+
+  public boolean isShutdown() {
+    return this.delegate.isShutdown();
+  }
+
+  public boolean isTerminated() {
+    return this.delegate.isTerminated();
+  }
+
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return this.delegate.awaitTermination(timeout, unit);
+  }
+}
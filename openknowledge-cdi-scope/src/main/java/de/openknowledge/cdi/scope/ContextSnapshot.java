@@ -0,0 +1,199 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.scope;
+
+import java.lang.annotation.Annotation;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+/**
+ * A snapshot of the {@link ThreadScoped} instances and optionally of the destroyable scopes
+ * of a thread. The snapshot may be installed in another thread, which then shares the
+ * scoped instances with the thread the snapshot was taken in.
+ * <pre>
+ *  final ContextSnapshot snapshot = ContextSnapshot.capture(beanManager, ConversationScope.class);
+ *  executor.execute(new Runnable() {
+ *    public void run() {
+ *      ContextSnapshot previous = snapshot.install();
+ *      try {
+ *        ...
+ *      } finally {
+ *        previous.install();
+ *      }
+ *    }
+ *  });
+ * </pre>
+ * or simply <code>executor.execute(snapshot.wrap(runnable))</code>. See {@link ContextPropagatingExecutorService}
+ * to propagate the scopes to every task of an executor.
+ * <p/>
+ * The snapshot holds the scoped instances of the thread, not a copy. Instances that are created
+ * by one of the threads are visible to the other threads, too, even when the thread the snapshot
+ * was taken in had no {@link ThreadScoped} instances yet. The instances are destroyed
+ * when the scope ends in the thread the snapshot was taken in. {@link ThreadScoped} instances
+ * that another thread creates after that are not shared and are destroyed when the other thread
+ * restores its scopes.
+ *
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+public class ContextSnapshot {
+
+  private ThreadContext threadContext;
+  private ContextualInstanceMap threadInstances;
+  private Map<DefaultDestroyableContext, Object> parentBeanInstances;
+  private boolean restoring;
+
+  private ContextSnapshot(ThreadContext threadContext,
+                          ContextualInstanceMap threadInstances,
+                          Map<DefaultDestroyableContext, Object> parentBeanInstances,
+                          boolean restoring) {
+    this.threadContext = threadContext;
+    this.threadInstances = threadInstances;
+    this.parentBeanInstances = parentBeanInstances;
+    this.restoring = restoring;
+  }
+
+  /**
+   * Takes a snapshot of the scopes of the current thread.
+   *
+   * @param beanManager The bean manager.
+   * @param destroyableScopes The destroyable scopes to propagate in addition to the {@link ThreadScoped} scope.
+   *                          Scopes that are not active in the current thread are ignored.
+   * @return The snapshot.
+   */
+  public static ContextSnapshot capture(BeanManager beanManager, Class<? extends Annotation>... destroyableScopes) {
+    if (beanManager == null) {
+      throw new IllegalArgumentException("beanManager may not be null");
+    }
+    return capture(getThreadContext(beanManager), getDestroyableContexts(beanManager, destroyableScopes));
+  }
+
+  /**
+   * Takes a snapshot of the given contexts of the current thread. The (empty) {@link ThreadScoped}
+   * scope of the current thread is created, if the current thread has none, so all threads
+   * the snapshot is installed in share their instances with the current thread.
+   */
+  static ContextSnapshot capture(ThreadContext threadContext, DefaultDestroyableContext[] destroyableContexts) {
+    ContextualInstanceMap threadInstances = threadContext != null ? threadContext.getOrCreateInstances() : null;
+    Map<DefaultDestroyableContext, Object> parentBeanInstances = new HashMap<DefaultDestroyableContext, Object>();
+    for (DefaultDestroyableContext destroyableContext : destroyableContexts) {
+      Object parentBeanInstance = destroyableContext.getParentBeanInstance();
+      if (parentBeanInstance != null) {
+        parentBeanInstances.put(destroyableContext, parentBeanInstance);
+      }
+    }
+    return new ContextSnapshot(threadContext, threadInstances, parentBeanInstances, false);
+  }
+
+  static ThreadContext getThreadContext(BeanManager beanManager) {
+    ThreadContextExtension threadContextExtension = getExtension(beanManager, ThreadContextExtension.class);
+    return threadContextExtension != null ? threadContextExtension.getContext() : null;
+  }
+
+  static DefaultDestroyableContext[] getDestroyableContexts(BeanManager beanManager,
+                                                            Class<? extends Annotation>... destroyableScopes) {
+    DefaultDestroyableContext[] destroyableContexts = new DefaultDestroyableContext[destroyableScopes.length];
+    if (destroyableScopes.length == 0) {
+      return destroyableContexts;
+    }
+    DestroyableContextExtension destroyableContextExtension
+      = getExtension(beanManager, DestroyableContextExtension.class);
+    for (int i = 0; i < destroyableScopes.length; i++) {
+      Class<? extends Annotation> scope = destroyableScopes[i];
+      destroyableContexts[i] = destroyableContextExtension != null ? destroyableContextExtension.getContext(scope) : null;
+      if (destroyableContexts[i] == null) {
+        throw new IllegalArgumentException(scope.getName() + " is no destroyable scope");
+      }
+    }
+    return destroyableContexts;
+  }
+
+  /**
+   * Installs the scopes of this snapshot in the current thread.
+   *
+   * @return The snapshot of the replaced scopes of the current thread. Install it to restore the current thread.
+   *         Restoring destroys the {@link ThreadScoped} instances that were created by the current thread
+   *         in the meantime, i.e. when the scope of the thread the snapshot was taken in has ended.
+   */
+  public ContextSnapshot install() {
+    ContextualInstanceMap previousThreadInstances = null;
+    if (this.threadContext != null) {
+      if (this.restoring) {
+        this.threadContext.restoreInstances(this.threadInstances);
+      } else {
+        previousThreadInstances = this.threadContext.setInstances(this.threadInstances);
+      }
+    }
+    Map<DefaultDestroyableContext, Object> previousParentBeanInstances = new HashMap<DefaultDestroyableContext, Object>();
+    for (Map.Entry<DefaultDestroyableContext, Object> entry : this.parentBeanInstances.entrySet()) {
+      previousParentBeanInstances.put(entry.getKey(), entry.getKey().setParentBeanInstance(entry.getValue()));
+    }
+    return new ContextSnapshot(this.threadContext, previousThreadInstances, previousParentBeanInstances, true);
+  }
+
+  /**
+   * Wraps the runnable to run with the scopes of this snapshot.
+   * The scopes of the executing thread are restored afterwards.
+   */
+  public Runnable wrap(final Runnable runnable) {
+    if (runnable == null) {
+      throw new IllegalArgumentException("runnable may not be null");
+    }
+    return new Runnable() {
+      public void run() {
+        ContextSnapshot previous = install();
+        try {
+          runnable.run();
+        } finally {
+          previous.install();
+        }
+      }
+    };
+  }
+
+  /**
+   * Wraps the callable to be called with the scopes of this snapshot.
+   * The scopes of the executing thread are restored afterwards.
+   */
+  public <T> Callable<T> wrap(final Callable<T> callable) {
+    if (callable == null) {
+      throw new IllegalArgumentException("callable may not be null");
+    }
+    return new Callable<T>() {
+      public T call() throws Exception {
+        ContextSnapshot previous = install();
+        try {
+          return callable.call();
+        } finally {
+          previous.install();
+        }
+      }
+    };
+  }
+
+  private static <E> E getExtension(BeanManager beanManager, Class<E> extensionType) {
+    Bean<?> bean = beanManager.resolve(beanManager.getBeans(extensionType));
+    if (bean == null) {
+      return null;
+    }
+    return extensionType.cast(beanManager.getReference(bean, extensionType, beanManager.createCreationalContext(bean)));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.scope;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.enterprise.context.spi.Contextual;
+
+import de.openknowledge.cdi.scope.AbstractContext.Instance;
+
+/**
+ * A map of contextual instances that stores the instances of contextuals with a
+ * {@link ContextualSlots slot} in an array. Instances of contextuals without a slot,
+ * i.e. of beans that were added after the context was created, are stored in a hash map.
+ * <p/>
+ * Reads do not lock, so the map may be read concurrently.
+ * Writers have to synchronize on their own.
+ *
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+class ContextualInstanceMap extends AbstractMap<Contextual<?>, Instance<?>> {
+
+  private ContextualSlots slots;
+  private AtomicReferenceArray<Instance<?>> slottedInstances;
+  private Map<Contextual<?>, Instance<?>> otherInstances = new ConcurrentHashMap<Contextual<?>, Instance<?>>();
+
+  public ContextualInstanceMap(ContextualSlots slots) {
+    this.slots = slots;
+    this.slottedInstances = new AtomicReferenceArray<Instance<?>>(slots.size());
+  }
+
+  @Override
+  public Instance<?> get(Object contextual) {
+    if (!(contextual instanceof Contextual)) {
+      return null;
+    }
+    int slot = this.slots.getSlot((Contextual<?>)contextual);
+    if (slot >= 0) {
+      return this.slottedInstances.get(slot);
+    }
+    return this.otherInstances.get(contextual);
+  }
+
+  /**
+   * Returns whether the instance of the contextual is stored in a slot.
+   */
+  boolean isSlotted(Contextual<?> contextual) {
+    return this.slots.getSlot(contextual) >= 0;
+  }
+
+  @Override
+  public boolean containsKey(Object contextual) {
+    return get(contextual) != null;
+  }
+
+  @Override
+  public Instance<?> put(Contextual<?> contextual, Instance<?> instance) {
+    int slot = this.slots.getSlot(contextual);
+    if (slot >= 0) {
+      return this.slottedInstances.getAndSet(slot, instance);
+    }
+    return this.otherInstances.put(contextual, instance);
+  }
+
+  @Override
+  public Instance<?> remove(Object contextual) {
+    if (!(contextual instanceof Contextual)) {
+      return null;
+    }
+    int slot = this.slots.getSlot((Contextual<?>)contextual);
+    if (slot >= 0) {
+      return this.slottedInstances.getAndSet(slot, null);
+    }
+    return this.otherInstances.remove(contextual);
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < this.slottedInstances.length(); i++) {
+      this.slottedInstances.set(i, null);
+    }
+    this.otherInstances.clear();
+  }
+
+  /**
+   * Returns a snapshot of the stored instances.
+   */
+  @Override
+  public Set<Entry<Contextual<?>, Instance<?>>> entrySet() {
+    final List<Entry<Contextual<?>, Instance<?>>> entries = new ArrayList<Entry<Contextual<?>, Instance<?>>>();
+    for (int i = 0; i < this.slottedInstances.length(); i++) {
+      Instance<?> instance = this.slottedInstances.get(i);
+      if (instance != null) {
+        entries.add(new SimpleImmutableEntry<Contextual<?>, Instance<?>>(instance.getContextual(), instance));
+      }
+    }
+    for (Entry<Contextual<?>, Instance<?>> entry : this.otherInstances.entrySet()) {
+      entries.add(new SimpleImmutableEntry<Contextual<?>, Instance<?>>(entry));
+    }
+    return new AbstractSet<Entry<Contextual<?>, Instance<?>>>() {
+      @Override
+      public Iterator<Entry<Contextual<?>, Instance<?>>> iterator() {
+        return entries.iterator();
+      }
+
+      @Override
+      public int size() {
+        return entries.size();
+      }
+    };
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.scope;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.enterprise.context.spi.Contextual;
+
+/**
+ * Assigns a dense index to every contextual of a scope that is known when the context is created.
+ * The slots are looked up by identity, so the possibly expensive <code>hashCode</code> and
+ * <code>equals</code> of the contextuals are not used. The slots cannot be changed afterwards.
+ *
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+class ContextualSlots {
+
+  static final ContextualSlots NONE = new ContextualSlots(Collections.<Contextual<?>>emptySet());
+
+  private final Map<Contextual<?>, Integer> slots;
+
+  public ContextualSlots(Collection<? extends Contextual<?>> contextuals) {
+    Map<Contextual<?>, Integer> slots = new IdentityHashMap<Contextual<?>, Integer>();
+    for (Contextual<?> contextual : contextuals) {
+      if (!slots.containsKey(contextual)) {
+        slots.put(contextual, slots.size());
+      }
+    }
+    this.slots = slots;
+  }
+
+  /**
+   * Returns the slot of the contextual or <code>-1</code>, if the contextual has no slot.
+   */
+  public int getSlot(Contextual<?> contextual) {
+    Integer slot = this.slots.get(contextual);
+    return slot != null ? slot : -1;
+  }
+
+  public int size() {
+    return this.slots.size();
+  }
+}
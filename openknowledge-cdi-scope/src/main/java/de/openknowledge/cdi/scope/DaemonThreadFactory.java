@@ -0,0 +1,40 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.scope;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the numbered daemon threads of the background tasks of the contexts.
+ *
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+  private String name;
+  private int count;
+
+  public DaemonThreadFactory(String name) {
+    this.name = name;
+  }
+
+  public synchronized Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, this.name + "-" + ++this.count);
+    thread.setDaemon(true);
+    return thread;
+  }
+}
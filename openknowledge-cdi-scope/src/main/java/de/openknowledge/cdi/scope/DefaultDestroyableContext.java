@@ -17,9 +17,17 @@
 package de.openknowledge.cdi.scope;
 
 import java.lang.annotation.Annotation;
-import java.util.HashMap;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.enterprise.context.ContextNotActiveException;
 import javax.enterprise.context.Dependent;
 import javax.enterprise.context.spi.Context;
 import javax.enterprise.context.spi.Contextual;
@@ -28,20 +36,57 @@ import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.inject.Singleton;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 /**
  * The Context for custom scopes marked with {@link Begin} or {@link End}.
+ * <p/>
+ * The context may be used concurrently, i.e. when the parent bean is application scoped.
+ * Lookups of existing instances do not lock. Instances are created and destroyed while holding
+ * a lock that is selected by the parent bean instance, so every instance is created once and
+ * threads working with different parent instances rarely share a lock.
+ * The instances of the beans that were discovered for the scope are stored in an array
+ * per parent bean instance, see {@link ContextualSlots}.
+ * <p/>
+ * Parent bean instances are tracked by identity and only weakly referenced. When a parent bean
+ * instance is garbage collected without its scope being ended, the instances of its scope are
+ * destroyed by a background cleaner thread and counted as leaked, see {@link #getLeakedScopeCount()}.
+ * <p/>
+ * The scope of the current parent bean instance may be handed to other threads with a {@link ContextSnapshot}.
+ * <p/>
+ * Note that the parent bean instance cannot be collected as long as one of the scoped instances
+ * references it.
  *
  * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
  */
 @Singleton
 public class DefaultDestroyableContext extends AbstractContext implements DestroyableContext {
 
+  private static final Log LOG = LogFactory.getLog(DefaultDestroyableContext.class);
+
+  private static final int LOCK_STRIPES = 32;
+
   private Bean<?> parentBean;
   private Class<? extends Annotation> scope;
   private BeanManager beanManager;
-  private Map<Object, Map<Contextual<?>, Instance<?>>> instances = new HashMap<Object, Map<Contextual<?>, Instance<?>>>();
+  private ContextualSlots slots;
+  private ThreadLocal<Object> propagatedParentBeanInstances = new ThreadLocal<Object>();
+  private ConcurrentMap<ParentReference, ContextualMap> instances = new ConcurrentHashMap<ParentReference, ContextualMap>();
+  private Object[] locks = new Object[LOCK_STRIPES];
+  private ReferenceQueue<Object> reclaimedParents = new ReferenceQueue<Object>();
+  private ExecutorService cleaner;
+  private AtomicLong leakedScopes = new AtomicLong();
+  private AtomicLong leakedInstances = new AtomicLong();
 
   public DefaultDestroyableContext(Bean<?> parentBean, Class<? extends Annotation> scope, BeanManager beanManager) {
+    this(parentBean, scope, beanManager, ContextualSlots.NONE);
+  }
+
+  DefaultDestroyableContext(Bean<?> parentBean,
+                            Class<? extends Annotation> scope,
+                            BeanManager beanManager,
+                            ContextualSlots slots) {
     if (parentBean == null) {
       throw new IllegalArgumentException("bean may not be null");
     }
@@ -54,6 +99,10 @@ public class DefaultDestroyableContext extends AbstractContext implements Destro
     this.parentBean = parentBean;
     this.scope = scope;
     this.beanManager = beanManager;
+    this.slots = slots;
+    for (int i = 0; i < this.locks.length; i++) {
+      this.locks[i] = new Object();
+    }
   }
 
   @Override
@@ -67,30 +116,199 @@ public class DefaultDestroyableContext extends AbstractContext implements Destro
   }
 
   public void destroy(Object destroyingBeanInstance) {
-    Map<Contextual<?>, Instance<?>> instances = this.instances.get(destroyingBeanInstance);
-    if (instances == null) {
+    ContextualMap instances = this.instances.get(new ParentReference(destroyingBeanInstance));
+    if (instances == null || !remove(instances)) {
       return;
     }
+    // the scope is ended, so there is no need to clean it up when the parent is collected
+    instances.parent.clear();
     for (Instance<?> instance : instances.values()) {
       instance.destroy();
     }
-    this.instances.remove(destroyingBeanInstance);
   }
-  
+
+  /**
+   * Returns the number of scopes whose parent bean instance was garbage collected
+   * before the scope was ended.
+   */
+  public long getLeakedScopeCount() {
+    return this.leakedScopes.get();
+  }
+
+  /**
+   * Returns the number of instances that were destroyed by the cleaner,
+   * because the parent bean instance of their scope was garbage collected.
+   */
+  public long getLeakedInstanceCount() {
+    return this.leakedInstances.get();
+  }
+
+  /**
+   * Returns the number of parent bean instances that currently have an active scope.
+   */
+  public int getActiveScopeCount() {
+    return this.instances.size();
+  }
+
+  /**
+   * Stops the cleaner thread. Scopes of parent bean instances that are collected afterwards
+   * are not destroyed anymore.
+   */
+  public synchronized void shutdown() {
+    if (this.cleaner != null) {
+      this.cleaner.shutdownNow();
+      this.cleaner = null;
+    }
+  }
+
+
   protected Map<Contextual<?>, Instance<?>> getContextualMap(CreationalContext<?> creationalContext) {
     Object parentBeanInstance = getParentBeanInstance(creationalContext);
     if (parentBeanInstance == null) {
       return null;
     }
-    Map<Contextual<?>, Instance<?>> instances = this.instances.get(parentBeanInstance);
+    return getContextualMap(parentBeanInstance);
+  }
+
+  ContextualMap getContextualMap(Object parentBeanInstance) {
+    ContextualMap instances = this.instances.get(new ParentReference(parentBeanInstance));
     if (instances == null) {
-      instances = new HashMap<Contextual<?>, Instance<?>>();
-      this.instances.put(parentBeanInstance, instances);
+      ParentReference parent = new ParentReference(parentBeanInstance, this.reclaimedParents);
+      instances = new ContextualMap(parent, getLock(parentBeanInstance), this.slots);
+      ContextualMap existingInstances = this.instances.putIfAbsent(parent, instances);
+      if (existingInstances != null) {
+        instances = existingInstances;
+      } else {
+        startCleaner();
+      }
     }
     return instances;
   }
 
+  /**
+   * Stores the instance while holding the lock of the parent bean instance. The instance is created
+   * after the lock is released. If the instance was stored by another thread meanwhile, that instance
+   * is returned. If the context was destroyed meanwhile, the instance is stored in the new context
+   * of the parent bean instance.
+   */
+  @Override
+  protected <T> Instance<T> createInstance(Contextual<T> contextual,
+                                           CreationalContext<T> creationalContext,
+                                           Map<Contextual<?>, Instance<?>> contextualMap) {
+    ContextualMap instances = (ContextualMap)contextualMap;
+    while (true) {
+      synchronized (instances.lock) {
+        if (!instances.destroyed) {
+          Instance<T> instance = getInstance(contextual, instances);
+          if (instance == null) {
+            instance = new Instance<T>(contextual, creationalContext);
+            instances.put(contextual, instance);
+          }
+          return instance;
+        }
+      }
+      instances = (ContextualMap)getContextualMap(creationalContext);
+      if (instances == null) {
+        throw new ContextNotActiveException(this.scope.getName() + " is not active");
+      }
+    }
+  }
+
+  /**
+   * Returns the parent bean instance of the current thread or <code>null</code>, if the context is not active.
+   */
+  Object getParentBeanInstance() {
+    try {
+      return getParentBeanInstance(null);
+    } catch (ContextNotActiveException e) {
+      // the context of the parent bean is not active in the current thread
+      return null;
+    }
+  }
+
+  /**
+   * Uses the given parent bean instance in the current thread instead of the one of the outer context.
+   *
+   * @param parentBeanInstance The parent bean instance or <code>null</code> to use the outer context again.
+   * @return The parent bean instance that was used in the current thread before, may be <code>null</code>.
+   */
+  Object setParentBeanInstance(Object parentBeanInstance) {
+    Object previousParentBeanInstance = this.propagatedParentBeanInstances.get();
+    if (parentBeanInstance != null) {
+      this.propagatedParentBeanInstances.set(parentBeanInstance);
+    } else {
+      this.propagatedParentBeanInstances.remove();
+    }
+    return previousParentBeanInstance;
+  }
+
+  /**
+   * Removes the scope and marks it as destroyed, so no instances are created in it anymore.
+   *
+   * @return <code>false</code>, if the scope was removed concurrently.
+   */
+  private boolean remove(ContextualMap instances) {
+    synchronized (instances.lock) {
+      if (!this.instances.remove(instances.parent, instances)) {
+        return false;
+      }
+      instances.destroyed = true;
+      return true;
+    }
+  }
+
+  /**
+   * Destroys the scope of a parent bean instance that was garbage collected.
+   */
+  void destroyReclaimed(Reference<?> parent) {
+    ContextualMap instances = this.instances.get(parent);
+    if (instances == null || !remove(instances)) {
+      // the scope was ended before the parent bean instance was collected
+      return;
+    }
+    this.leakedScopes.incrementAndGet();
+    LOG.warn("Destroying " + instances.size() + " instance(s) of " + this.scope.getName()
+      + ", because the parent bean instance was garbage collected before the scope was ended");
+    for (Instance<?> instance : instances.values()) {
+      this.leakedInstances.incrementAndGet();
+      try {
+        instance.destroy();
+      } catch (RuntimeException e) {
+        LOG.warn("Unable to destroy instance of " + this.scope.getName(), e);
+      }
+    }
+  }
+
+  private synchronized void startCleaner() {
+    if (this.cleaner != null) {
+      return;
+    }
+    this.cleaner = Executors.newSingleThreadExecutor(new DaemonThreadFactory("destroyable-context-cleaner"));
+    this.cleaner.execute(new Runnable() {
+      public void run() {
+        try {
+          while (!Thread.currentThread().isInterrupted()) {
+            destroyReclaimed(reclaimedParents.remove());
+          }
+        } catch (InterruptedException e) {
+          // shut down
+        }
+      }
+    });
+  }
+
+  private Object getLock(Object parentBeanInstance) {
+    int hash = System.identityHashCode(parentBeanInstance);
+    hash ^= (hash >>> 16);
+    return this.locks[(hash & Integer.MAX_VALUE) % this.locks.length];
+  }
+
+  @SuppressWarnings("unchecked")
   private <T> T getParentBeanInstance(CreationalContext<T> creationalContext) {
+    Object propagatedParentBeanInstance = this.propagatedParentBeanInstances.get();
+    if (propagatedParentBeanInstance != null) {
+      return (T)propagatedParentBeanInstance;
+    }
     if (creationalContext == null && this.parentBean.getScope().equals(Dependent.class)) {
       creationalContext = this.beanManager.createCreationalContext(this.<T>getDestroyingBean());
     }
@@ -106,4 +324,56 @@ public class DefaultDestroyableContext extends AbstractContext implements Destro
   private <T> Bean<T> getDestroyingBean() {
     return (Bean<T>) this.parentBean;
   }
+
+  /**
+   * The instances of a single parent bean instance.
+   */
+  static class ContextualMap extends ContextualInstanceMap {
+
+    private ParentReference parent;
+    private Object lock;
+    private boolean destroyed;
+
+    public ContextualMap(ParentReference parent, Object lock, ContextualSlots slots) {
+      super(slots);
+      this.parent = parent;
+      this.lock = lock;
+    }
+  }
+
+  /**
+   * A weak reference to a parent bean instance that compares the referenced instance by identity.
+   * A reference whose parent bean instance was collected is only equal to itself.
+   */
+  private static class ParentReference extends WeakReference<Object> {
+
+    private int hashCode;
+
+    public ParentReference(Object parentBeanInstance) {
+      super(parentBeanInstance);
+      this.hashCode = System.identityHashCode(parentBeanInstance);
+    }
+
+    public ParentReference(Object parentBeanInstance, ReferenceQueue<Object> queue) {
+      super(parentBeanInstance, queue);
+      this.hashCode = System.identityHashCode(parentBeanInstance);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (object == this) {
+        return true;
+      }
+      if (!(object instanceof ParentReference)) {
+        return false;
+      }
+      Object parentBeanInstance = get();
+      return parentBeanInstance != null && parentBeanInstance == ((ParentReference)object).get();
+    }
+  }
 }
@@ -17,10 +17,20 @@
 package de.openknowledge.cdi.scope;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import javax.enterprise.context.spi.Context;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.ConversationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.SessionScoped;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
 import javax.enterprise.inject.spi.Annotated;
@@ -29,8 +39,10 @@ import javax.enterprise.inject.spi.AnnotatedMethod;
 import javax.enterprise.inject.spi.AnnotatedType;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
 import javax.enterprise.inject.spi.ProcessBean;
+import javax.inject.Singleton;
 
 import de.openknowledge.cdi.common.qualifier.Corresponding;
 import de.openknowledge.cdi.common.spi.CorrespondingLiteral;
@@ -38,16 +50,40 @@ import de.openknowledge.cdi.common.spi.SingletonBean;
 
 /**
  * The DestroyableContextExtension. Scans for {@link Begin} and {@link End} annotations and creates the
- * {@link DefaultDestroyableContext} for every annotated class.
+ * {@link DefaultDestroyableContext} for every annotated class. The beans of a scope that are discovered
+ * get a slot in the context of the scope. The beans of the built-in scopes are never collected, since these
+ * scopes cannot be destroyable scopes, and the collected beans are released once the contexts are created.
  *
  * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
  */
 public class DestroyableContextExtension implements Extension {
 
+  private static final Set<Class<? extends Annotation>> BUILT_IN_SCOPES = new HashSet<Class<? extends Annotation>>(
+    Arrays.<Class<? extends Annotation>>asList(Dependent.class,
+                                               Singleton.class,
+                                               ApplicationScoped.class,
+                                               SessionScoped.class,
+                                               ConversationScoped.class,
+                                               RequestScoped.class));
+
   private Map<Class<? extends Annotation>, Bean<?>> destroyableBeans
     = new HashMap<Class<? extends Annotation>, Bean<?>>();
+  private Map<Class<? extends Annotation>, List<Bean<?>>> scopedBeans
+    = new HashMap<Class<? extends Annotation>, List<Bean<?>>>();
+  private Map<Class<? extends Annotation>, DefaultDestroyableContext> contexts
+    = new HashMap<Class<? extends Annotation>, DefaultDestroyableContext>();
 
   public void registerBean(@Observes ProcessBean<?> beanEvent, BeanManager beanManager) {
+    Class<? extends Annotation> beanScope = beanEvent.getBean().getScope();
+    if (!BUILT_IN_SCOPES.contains(beanScope)) {
+      List<Bean<?>> beans = this.scopedBeans.get(beanScope);
+      if (beans == null) {
+        beans = new ArrayList<Bean<?>>();
+        this.scopedBeans.put(beanScope, beans);
+      }
+      beans.add(beanEvent.getBean());
+    }
+
     End end = getAnnotation(End.class, beanEvent.getAnnotated(), beanManager);
     if (end != null) {
       for (Class<? extends Annotation> scope : end.value()) {
@@ -65,12 +101,36 @@ public class DestroyableContextExtension implements Extension {
 
   public void registerContexts(@Observes AfterBeanDiscovery afterBeanDiscovery, BeanManager beanManager) {
     for (Map.Entry<Class<? extends Annotation>, Bean<?>> entry : this.destroyableBeans.entrySet()) {
-      Context context = new DefaultDestroyableContext(entry.getValue(), entry.getKey(), beanManager);
+      ContextualSlots slots = new ContextualSlots(getScopedBeans(entry.getKey()));
+      DefaultDestroyableContext context
+        = new DefaultDestroyableContext(entry.getValue(), entry.getKey(), beanManager, slots);
+      this.contexts.put(entry.getKey(), context);
       afterBeanDiscovery.addContext(context);
       Corresponding corresponding = new CorrespondingLiteral(entry.getKey());
       Bean<?> contextBean = new SingletonBean(entry.getKey().getName(), context, beanManager, corresponding);
       afterBeanDiscovery.addBean(contextBean);
     }
+    // the beans of the scopes without a destroyable context are not needed anymore
+    this.scopedBeans.clear();
+  }
+
+  public void shutdownContexts(@Observes BeforeShutdown beforeShutdown) {
+    for (DefaultDestroyableContext context : this.contexts.values()) {
+      context.shutdown();
+    }
+  }
+
+  /**
+   * Returns the registered context of the scope or <code>null</code>, if the scope is no destroyable scope.
+   * The container may wrap the context, so it cannot be retrieved from the bean manager.
+   */
+  DefaultDestroyableContext getContext(Class<? extends Annotation> scope) {
+    return this.contexts.get(scope);
+  }
+
+  private List<Bean<?>> getScopedBeans(Class<? extends Annotation> scope) {
+    List<Bean<?>> beans = this.scopedBeans.get(scope);
+    return beans != null ? beans : Collections.<Bean<?>>emptyList();
   }
 
   private <A extends Annotation> A getAnnotation(Class<A> annotationType, Annotated annotated, BeanManager beanManager) {
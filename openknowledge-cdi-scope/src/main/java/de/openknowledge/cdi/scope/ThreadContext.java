@@ -14,22 +14,86 @@
  * limitations under the License.
  */
 
+
 package de.openknowledge.cdi.scope;
 
 import java.lang.annotation.Annotation;
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 /**
+ * The context of {@link ThreadScoped} beans. The instances of the thread scoped beans
+ * that are known when the context is created are stored in an array per thread.
+ * <p/>
+ * The instances of a thread may be handed to other threads with a {@link ContextSnapshot}.
+ * <p/>
+ * On pooled threads the scope should be bounded with {@link #begin()} and {@link #end()},
+ * i.e. by the {@code de.openknowledge.cdi.servlet.ThreadScopeFilter} for servlet requests.
+ * Ending the scope destroys the instances of the current thread. Instances of threads
+ * that have died are destroyed in the background. With {@link #MAX_AGE_PROPERTY} the instances of threads that did not use
+ * them for the given time are destroyed, too, unless the thread is inside a scope bounded by {@link #begin()}
+ * and {@link #end()}, which destroys them itself. Threads that hold instances for longer than
+ * {@link #WARN_AGE_PROPERTY} are logged, see {@link #getScopeStatus(long)}.
+ *
  * @author Arne Limburg
  */
 public class ThreadContext extends AbstractContext {
 
-  private ThreadLocal<Map<Contextual<?>, Instance<?>>> contextualMaps = new ThreadLocal<Map<Contextual<?>,Instance<?>>>();
-  
+  /**
+   * The time in milliseconds after which the instances of a thread that did not use them are destroyed.
+   * Defaults to <code>0</code>, which disables the eviction.
+   */
+  public static final String MAX_AGE_PROPERTY = "de.openknowledge.cdi.scope.thread.maxAge";
+
+  /**
+   * The time in milliseconds after which threads that still hold instances are logged.
+   * Defaults to <code>0</code>, which disables the warning.
+   */
+  public static final String WARN_AGE_PROPERTY = "de.openknowledge.cdi.scope.thread.warnAge";
+
+  private static final Log LOG = LogFactory.getLog(ThreadContext.class);
+
+  private static final long SWEEP_INTERVAL = 60000;
+
+  private ThreadLocal<ThreadInstances> contextualMaps = new ThreadLocal<ThreadInstances>();
+  private ThreadLocal<Boolean> boundedScopes = new ThreadLocal<Boolean>();
+  private ConcurrentMap<Long, ThreadInstances> activeInstances = new ConcurrentHashMap<Long, ThreadInstances>();
+  private AtomicLong ids = new AtomicLong();
+  private ContextualSlots slots;
+  private long maxAge;
+  private long warnAge;
+  private ScheduledExecutorService sweeper;
+
+  public ThreadContext() {
+    this(ContextualSlots.NONE);
+  }
+
+  ThreadContext(ContextualSlots slots) {
+    this(slots, Long.getLong(MAX_AGE_PROPERTY, 0), Long.getLong(WARN_AGE_PROPERTY, 0));
+  }
+
+  ThreadContext(ContextualSlots slots, long maxAge, long warnAge) {
+    this.slots = slots;
+    this.maxAge = maxAge;
+    this.warnAge = warnAge;
+  }
+
   @Override
   public Class<? extends Annotation> getScope() {
     return ThreadScoped.class;
@@ -40,16 +104,290 @@ public class ThreadContext extends AbstractContext {
     return true;
   }
 
+  /**
+   * Begins the scope of the current thread. Instances that were left by a previous
+   * scope of the thread are destroyed.
+   */
+  public void begin() {
+    ThreadInstances instances = this.contextualMaps.get();
+    if (instances != null && !instances.destroyed) {
+      LOG.debug("Destroying instances left in thread " + instances.threadName);
+      destroy(instances);
+    }
+    this.contextualMaps.remove();
+    this.boundedScopes.set(Boolean.TRUE);
+  }
+
+  /**
+   * Ends the scope of the current thread and destroys its instances.
+   */
+  public void end() {
+    ThreadInstances instances = this.contextualMaps.get();
+    this.contextualMaps.remove();
+    this.boundedScopes.remove();
+    if (instances != null) {
+      destroy(instances);
+    }
+  }
+
+  /**
+   * Reports the threads that hold instances.
+   *
+   * @param minAge The minimal time in milliseconds the instances have to be held by the thread to be reported.
+   * @return The status of the scopes of the reported threads.
+   */
+  public List<ScopeStatus> getScopeStatus(long minAge) {
+    long now = System.currentTimeMillis();
+    List<ScopeStatus> status = new ArrayList<ScopeStatus>();
+    for (ThreadInstances instances : this.activeInstances.values()) {
+      if (now - instances.created >= minAge) {
+        status.add(new ScopeStatus(instances, now));
+      }
+    }
+    return status;
+  }
+
+  /**
+   * Stops the background eviction.
+   */
+  public synchronized void shutdown() {
+    if (this.sweeper != null) {
+      this.sweeper.shutdownNow();
+      this.sweeper = null;
+    }
+  }
+
+  /**
+   * Returns the instances of the current thread. They are only created for a creational context,
+   * so looking up an instance does not register the current thread.
+   */
   @Override
   protected Map<Contextual<?>, Instance<?>> getContextualMap(CreationalContext<?> creationalContext) {
-    Map<Contextual<?>, Instance<?>> contextualMap = contextualMaps.get();
-    if (contextualMap == null) {
-      contextualMap = new HashMap<Contextual<?>, AbstractContext.Instance<?>>();
+    if (creationalContext != null) {
+      return getOrCreateInstances();
+    }
+    ThreadInstances contextualMap = contextualMaps.get();
+    if (contextualMap == null || contextualMap.destroyed) {
+      return Collections.emptyMap();
+    }
+    if (this.maxAge > 0) {
+      contextualMap.lastAccess = System.currentTimeMillis();
+    }
+    return contextualMap;
+  }
+
+  /**
+   * Returns the instances of the current thread and creates them, if the current thread has none.
+   */
+  ContextualInstanceMap getOrCreateInstances() {
+    ThreadInstances contextualMap = contextualMaps.get();
+    if (contextualMap == null || contextualMap.destroyed) {
+      contextualMap = new ThreadInstances(this.ids.incrementAndGet(), this.slots);
+      contextualMap.bounded = this.boundedScopes.get() != null;
       contextualMaps.set(contextualMap);
+      this.activeInstances.put(contextualMap.id, contextualMap);
+      startSweeper();
+    }
+    if (this.maxAge > 0) {
+      contextualMap.lastAccess = System.currentTimeMillis();
     }
     return contextualMap;
   }
 
-}
+  /**
+   * The instances of a thread may be shared with other threads by a {@link ContextSnapshot},
+   * so instances are stored while holding the lock of the map. They are created after the lock is released.
+   * If the instances were evicted meanwhile, the instance is stored in the new map of the current thread.
+   */
+  @Override
+  protected <T> Instance<T> createInstance(Contextual<T> contextual,
+                                           CreationalContext<T> creationalContext,
+                                           Map<Contextual<?>, Instance<?>> instances) {
+    while (true) {
+      synchronized (instances) {
+        if (!((ThreadInstances)instances).destroyed) {
+          Instance<T> instance = getInstance(contextual, instances);
+          if (instance == null) {
+            instance = super.createInstance(contextual, creationalContext, instances);
+          }
+          return instance;
+        }
+      }
+      instances = getContextualMap(creationalContext);
+    }
+  }
+
+  /**
+   * Replaces the instances of the current thread.
+   *
+   * @param instances The new instances or <code>null</code> to remove the instances of the current thread.
+   * @return The previous instances of the current thread, may be <code>null</code>.
+   */
+  ContextualInstanceMap setInstances(ContextualInstanceMap instances) {
+    ContextualInstanceMap previousInstances = contextualMaps.get();
+    if (instances != null) {
+      contextualMaps.set((ThreadInstances)instances);
+    } else {
+      contextualMaps.remove();
+    }
+    return previousInstances;
+  }
+
+  /**
+   * Restores the instances of the current thread that were replaced by {@link #setInstances(ContextualInstanceMap)}.
+   * Instances that were created by the current thread meanwhile are discarded and therefore destroyed,
+   * i.e. when the installed instances were destroyed by the thread that shared them.
+   *
+   * @param instances The instances to restore, may be <code>null</code>.
+   */
+  void restoreInstances(ContextualInstanceMap instances) {
+    ThreadInstances discardedInstances = contextualMaps.get();
+    setInstances(instances);
+    if (discardedInstances != null
+      && discardedInstances != instances
+      && discardedInstances.thread.get() == Thread.currentThread()) {
+      destroy(discardedInstances);
+    }
+  }
+
+  /**
+   * Destroys the instances of threads that have died or did not use them for longer
+   * than the maximum age, and logs the threads that hold instances for too long.
+   * Instances of threads that are inside a bounded scope are not evicted, since the thread
+   * may still be using them.
+   */
+  void sweep() {
+    long now = System.currentTimeMillis();
+    for (ThreadInstances instances : this.activeInstances.values()) {
+      Thread thread = instances.thread.get();
+      if (thread == null || !thread.isAlive()) {
+        LOG.debug("Destroying instances of terminated thread " + instances.threadName);
+        destroy(instances);
+      } else if (this.maxAge > 0 && !instances.bounded && now - instances.lastAccess > this.maxAge) {
+        LOG.debug("Destroying instances of thread " + instances.threadName
+          + ", that were not used for " + (now - instances.lastAccess) + "ms");
+        destroy(instances);
+      } else if (this.warnAge > 0 && now - instances.created > this.warnAge && !instances.reported) {
+        instances.reported = true;
+        LOG.warn("Thread " + instances.threadName + " holds " + instances.size()
+          + " thread scoped instance(s) for " + (now - instances.created) + "ms");
+      }
+    }
+  }
+
+  private void destroy(ThreadInstances instances) {
+    this.activeInstances.remove(instances.id);
+    Collection<Instance<?>> destroyedInstances;
+    synchronized (instances) {
+      if (instances.destroyed) {
+        return;
+      }
+      instances.destroyed = true;
+      destroyedInstances = new ArrayList<Instance<?>>(instances.values());
+      instances.clear();
+    }
+    for (Instance<?> instance : destroyedInstances) {
+      try {
+        instance.destroy();
+      } catch (RuntimeException e) {
+        LOG.warn("Unable to destroy thread scoped instance", e);
+      }
+    }
+  }
+
+  private synchronized void startSweeper() {
+    if (this.sweeper != null) {
+      return;
+    }
+    long interval = SWEEP_INTERVAL;
+    if (this.maxAge > 0) {
+      interval = Math.min(interval, Math.max(this.maxAge / 2, 1));
+    }
+    if (this.warnAge > 0) {
+      interval = Math.min(interval, Math.max(this.warnAge / 2, 1));
+    }
+    this.sweeper = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("thread-context-sweeper"));
+    this.sweeper.scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        sweep();
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The status of the scope of a thread.
+   */
+  public static class ScopeStatus {
+
+    private String threadName;
+    private boolean threadAlive;
+    private long age;
+    private long idleTime;
+    private int instanceCount;
 
+    private ScopeStatus(ThreadInstances instances, long now) {
+      Thread thread = instances.thread.get();
+      this.threadName = instances.threadName;
+      this.threadAlive = thread != null && thread.isAlive();
+      this.age = now - instances.created;
+      this.idleTime = instances.lastAccess > 0 ? now - instances.lastAccess : -1;
+      this.instanceCount = instances.size();
+    }
+
+    public String getThreadName() {
+      return this.threadName;
+    }
+
+    public boolean isThreadAlive() {
+      return this.threadAlive;
+    }
 
+    /**
+     * Returns the time in milliseconds since the instances of the thread were created.
+     */
+    public long getAge() {
+      return this.age;
+    }
+
+    /**
+     * Returns the time in milliseconds since the instances were used last,
+     * or <code>-1</code>, if the usage is not tracked because {@link #MAX_AGE_PROPERTY} is not set.
+     */
+    public long getIdleTime() {
+      return this.idleTime;
+    }
+
+    public int getInstanceCount() {
+      return this.instanceCount;
+    }
+
+    @Override
+    public String toString() {
+      return this.threadName + ": " + this.instanceCount + " instance(s) for " + this.age + "ms";
+    }
+  }
+
+  /**
+   * The instances of a single thread.
+   */
+  private static class ThreadInstances extends ContextualInstanceMap {
+
+    private long id;
+    private WeakReference<Thread> thread;
+    private String threadName;
+    private long created;
+    private volatile long lastAccess;
+    private volatile boolean destroyed;
+    private boolean bounded;
+    private boolean reported;
+
+    public ThreadInstances(long id, ContextualSlots slots) {
+      super(slots);
+      Thread currentThread = Thread.currentThread();
+      this.id = id;
+      this.thread = new WeakReference<Thread>(currentThread);
+      this.threadName = currentThread.getName();
+      this.created = System.currentTimeMillis();
+    }
+  }
+}
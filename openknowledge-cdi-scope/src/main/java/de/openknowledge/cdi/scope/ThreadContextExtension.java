@@ -16,16 +16,49 @@
 
 package de.openknowledge.cdi.scope;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessBean;
 
 /**
+ * Registers the {@link ThreadContext}. Every {@link ThreadScoped} bean that is discovered
+ * gets a slot in the context.
+ *
  * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
  */
 public class ThreadContextExtension implements Extension {
 
+  private List<Bean<?>> threadScopedBeans = new ArrayList<Bean<?>>();
+  private ThreadContext context;
+
+  public void registerBean(@Observes ProcessBean<?> beanEvent) {
+    if (ThreadScoped.class.equals(beanEvent.getBean().getScope())) {
+      this.threadScopedBeans.add(beanEvent.getBean());
+    }
+  }
+
   public void registerContexts(@Observes AfterBeanDiscovery afterBeanDiscovery) {
-	  afterBeanDiscovery.addContext(new ThreadContext());
+    this.context = new ThreadContext(new ContextualSlots(this.threadScopedBeans));
+    afterBeanDiscovery.addContext(this.context);
+  }
+
+  public void shutdownContext(@Observes BeforeShutdown beforeShutdown) {
+    if (this.context != null) {
+      this.context.shutdown();
+    }
+  }
+
+  /**
+   * Returns the registered context. The container may wrap the context,
+   * so it cannot be retrieved from the bean manager.
+   */
+  public ThreadContext getContext() {
+    return this.context;
   }
 }
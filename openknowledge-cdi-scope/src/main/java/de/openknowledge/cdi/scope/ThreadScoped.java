@@ -30,6 +30,8 @@ import javax.enterprise.context.NormalScope;
 
 /**
  * <strong>Don't use in ThreadPools</strong> unless you know what you are doing.
+ * Pooled threads have to begin and end the scope with {@link ThreadContext#begin()}
+ * and {@link ThreadContext#end()}, i.e. with the {@code de.openknowledge.cdi.servlet.ThreadScopeFilter}.
  * @author Arne Limburg
  */
 @Target( { TYPE, METHOD, FIELD})
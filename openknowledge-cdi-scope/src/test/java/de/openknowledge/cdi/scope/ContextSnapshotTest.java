@@ -0,0 +1,100 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.scope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+
+import de.openknowledge.cdi.test.CdiJunit4TestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+@RunWith(CdiJunit4TestRunner.class)
+public class ContextSnapshotTest {
+
+  @Inject
+  private ThreadScopedBean threadScopedBean;
+  @Inject
+  private Parent scopingBean;
+  @Inject
+  private TestScopedChild testScopedChild;
+  @Inject
+  private BeanManager beanManager;
+
+  @Test
+  public void propagateThreadScope() throws Exception {
+    this.threadScopedBean.setValue("caller");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Callable<String> readValue = new Callable<String>() {
+        public String call() {
+          return threadScopedBean.getValue();
+        }
+      };
+      assertNull(executor.submit(readValue).get());
+
+      ExecutorService propagatingExecutor
+        = new ContextPropagatingExecutorService(executor, this.beanManager, TestScope.class);
+      assertEquals("caller", propagatingExecutor.submit(readValue).get());
+
+      // the scope of the worker thread is restored
+      assertNull(executor.submit(readValue).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void installAndRestore() throws Exception {
+    this.threadScopedBean.setValue("caller");
+    // the context is active, when the parent bean exists
+    this.scopingBean.isEnded();
+    final ContextSnapshot snapshot = ContextSnapshot.capture(this.beanManager, TestScope.class);
+    final int childId = this.testScopedChild.hashCode();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertEquals("caller", executor.submit(new Callable<String>() {
+        public String call() {
+          ContextSnapshot previous = snapshot.install();
+          try {
+            assertEquals(childId, testScopedChild.hashCode());
+            String value = threadScopedBean.getValue();
+            threadScopedBean.setValue("worker");
+            return value;
+          } finally {
+            previous.install();
+          }
+        }
+      }).get());
+      // the instances are shared with the worker
+      assertEquals("worker", this.threadScopedBean.getValue());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.scope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+
+import de.openknowledge.cdi.scope.AbstractContext.Instance;
+import org.junit.Test;
+
+/**
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+public class ContextualInstanceMapTest {
+
+  @Test
+  public void slottedAndOtherContextuals() {
+    Contextual<Object> slotted = new TestContextual();
+    Contextual<Object> other = new TestContextual();
+    ContextualSlots slots = new ContextualSlots(Arrays.<Contextual<?>>asList(slotted));
+    assertEquals(0, slots.getSlot(slotted));
+    assertEquals(-1, slots.getSlot(other));
+
+    ContextualInstanceMap instances = new ContextualInstanceMap(slots);
+    assertNull(instances.get(slotted));
+    Instance<Object> slottedInstance = new Instance<Object>(slotted, null);
+    Instance<Object> otherInstance = new Instance<Object>(other, null);
+    instances.put(slotted, slottedInstance);
+    instances.put(other, otherInstance);
+
+    assertSame(slottedInstance, instances.get(slotted));
+    assertSame(otherInstance, instances.get(other));
+    assertEquals(2, instances.size());
+    assertTrue(instances.values().contains(slottedInstance));
+    assertTrue(instances.values().contains(otherInstance));
+
+    assertSame(slottedInstance, instances.remove(slotted));
+    assertNull(instances.get(slotted));
+    assertEquals(1, instances.size());
+  }
+
+  @Test
+  public void slotsUseIdentity() {
+    Contextual<Object> contextual = new TestContextual() {
+      @Override
+      public boolean equals(Object object) {
+        return object instanceof TestContextual;
+      }
+
+      @Override
+      public int hashCode() {
+        return 0;
+      }
+    };
+    ContextualSlots slots = new ContextualSlots(Arrays.<Contextual<?>>asList(contextual));
+    assertEquals(0, slots.getSlot(contextual));
+    assertEquals(-1, slots.getSlot(new TestContextual()));
+  }
+
+  private static class TestContextual implements Contextual<Object> {
+
+    public Object create(CreationalContext<Object> creationalContext) {
+      return new Object();
+    }
+
+    public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.openknowledge.cdi.scope;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+
+import de.openknowledge.cdi.scope.AbstractContext.Instance;
+import de.openknowledge.cdi.test.CdiJunit4TestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Verifies that the container looks up the discovered beans with the same {@link Bean}
+ * that was passed to the extensions, so their instances are stored in slots.
+ *
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+@RunWith(CdiJunit4TestRunner.class)
+public class ContextualSlotsTest {
+
+  @Inject
+  private ThreadScopedBean threadScopedBean;
+  @Inject
+  private Parent scopingBean;
+  @Inject
+  private BeanManager beanManager;
+
+  @Test
+  public void threadScopedBeansAreSlotted() {
+    this.threadScopedBean.getValue();
+
+    ThreadContext context = ContextSnapshot.getThreadContext(this.beanManager);
+    assertSlotted(ThreadScopedBean.class, context.getOrCreateInstances());
+  }
+
+  @Test
+  public void destroyableScopedBeansAreSlotted() {
+    this.scopingBean.getScopedBean().hashCode();
+
+    DefaultDestroyableContext context = ContextSnapshot.getDestroyableContexts(this.beanManager, TestScope.class)[0];
+    assertSlotted(TestScopedChild.class, context.getContextualMap(context.getParentBeanInstance()));
+  }
+
+  private void assertSlotted(Class<?> beanClass, ContextualInstanceMap instances) {
+    Contextual<?> contextual = null;
+    for (Map.Entry<Contextual<?>, Instance<?>> entry : instances.entrySet()) {
+      if (entry.getKey() instanceof Bean && ((Bean<?>)entry.getKey()).getBeanClass().equals(beanClass)) {
+        contextual = entry.getKey();
+      }
+    }
+    assertNotNull("no instance of " + beanClass.getName(), contextual);
+    assertTrue(beanClass.getName() + " is not slotted", instances.isSlotted(contextual));
+  }
+}
@@ -19,8 +19,21 @@ package de.openknowledge.cdi.scope;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.spi.Context;
+import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.inject.spi.Bean;
 import javax.enterprise.inject.spi.BeanManager;
@@ -54,4 +67,109 @@ public class DestroyableContextTest {
     TestScopedChild newScopedBean = (TestScopedChild) beanManager.getReference(testScopedBean, TestScopedChild.class, creationalContext);
     assertNotSame(hashCode, newScopedBean.hashCode());
   }
+
+  @Test
+  public void concurrentAccessCreatesSingleInstance() throws Exception {
+    final AtomicInteger creations = new AtomicInteger();
+    final Contextual<Object> slowContextual = new Contextual<Object>() {
+      public Object create(CreationalContext<Object> creationalContext) {
+        creations.incrementAndGet();
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return new Object();
+      }
+
+      public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+      }
+    };
+    // the context is active, when the parent bean exists
+    this.scopingBean.isEnded();
+    final Context context = beanManager.getContext(TestScope.class);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      for (int run = 1; run <= 10; run++) {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 8; i++) {
+          results.add(executor.submit(new Callable<Object>() {
+            public Object call() throws Exception {
+              start.await();
+              return context.get(slowContextual, beanManager.<Object>createCreationalContext(null));
+            }
+          }));
+        }
+        start.countDown();
+        Object instance = results.get(0).get();
+        for (Future<Object> result : results) {
+          assertSame(instance, result.get());
+        }
+        assertEquals(run, creations.get());
+        this.scopingBean.end();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void collectedParentDestroysScope() throws Exception {
+    final CountDownLatch destroyed = new CountDownLatch(1);
+    Contextual<Object> contextual = new Contextual<Object>() {
+      public Object create(CreationalContext<Object> creationalContext) {
+        return new Object();
+      }
+
+      public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+        destroyed.countDown();
+      }
+    };
+    Bean<?> parentBean = beanManager.resolve(beanManager.getBeans(Parent.class));
+    DefaultDestroyableContext context = new DefaultDestroyableContext(parentBean, TestScope.class, beanManager);
+    try {
+      Object parent = new Object();
+      context.createInstance(contextual, beanManager.<Object>createCreationalContext(null), context.getContextualMap(parent)).get();
+      assertEquals(1, context.getActiveScopeCount());
+      parent = null;
+      for (int i = 0; i < 50 && destroyed.getCount() > 0; i++) {
+        System.gc();
+        destroyed.await(100, TimeUnit.MILLISECONDS);
+      }
+      assertEquals(0, destroyed.getCount());
+      assertEquals(0, context.getActiveScopeCount());
+      assertEquals(1, context.getLeakedScopeCount());
+      assertEquals(1, context.getLeakedInstanceCount());
+    } finally {
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void endedScopeIsNotCountedAsLeak() throws Exception {
+    Contextual<Object> contextual = new Contextual<Object>() {
+      public Object create(CreationalContext<Object> creationalContext) {
+        return new Object();
+      }
+
+      public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+      }
+    };
+    Bean<?> parentBean = beanManager.resolve(beanManager.getBeans(Parent.class));
+    DefaultDestroyableContext context = new DefaultDestroyableContext(parentBean, TestScope.class, beanManager);
+    try {
+      Object parent = new Object();
+      context.createInstance(contextual, beanManager.<Object>createCreationalContext(null), context.getContextualMap(parent)).get();
+      context.destroy(parent);
+      parent = null;
+      System.gc();
+      Thread.sleep(100);
+      assertEquals(0, context.getActiveScopeCount());
+      assertEquals(0, context.getLeakedScopeCount());
+      assertEquals(0, context.getLeakedInstanceCount());
+    } finally {
+      context.shutdown();
+    }
+  }
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.scope;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+
+import org.junit.Test;
+
+/**
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+public class ThreadContextTest {
+
+  private AtomicInteger destroyed = new AtomicInteger();
+  private Contextual<Object> contextual = new Contextual<Object>() {
+    public Object create(CreationalContext<Object> creationalContext) {
+      return new Object();
+    }
+
+    public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+      destroyed.incrementAndGet();
+    }
+  };
+
+  @Test
+  public void endDestroysInstances() {
+    ThreadContext context = new ThreadContext(ContextualSlots.NONE, 0, 0);
+    try {
+      context.begin();
+      Object instance = context.get(this.contextual, new TestCreationalContext());
+      assertSame(instance, context.get(this.contextual));
+      context.end();
+      assertEquals(1, this.destroyed.get());
+      assertNotSame(instance, context.get(this.contextual, new TestCreationalContext()));
+      // leftovers are destroyed when the next scope begins
+      context.begin();
+      assertEquals(2, this.destroyed.get());
+    } finally {
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void idleInstancesAreEvicted() throws Exception {
+    ThreadContext context = new ThreadContext(ContextualSlots.NONE, 50, 0);
+    try {
+      Object instance = context.get(this.contextual, new TestCreationalContext());
+      Thread.sleep(100);
+      context.sweep();
+      assertEquals(1, this.destroyed.get());
+      assertNotSame(instance, context.get(this.contextual, new TestCreationalContext()));
+    } finally {
+      context.end();
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void instancesOfBoundedScopesAreNotEvicted() throws Exception {
+    ThreadContext context = new ThreadContext(ContextualSlots.NONE, 50, 0);
+    try {
+      context.begin();
+      Object instance = context.get(this.contextual, new TestCreationalContext());
+      Thread.sleep(100);
+      context.sweep();
+      assertEquals(0, this.destroyed.get());
+      assertSame(instance, context.get(this.contextual));
+      context.end();
+      assertEquals(1, this.destroyed.get());
+    } finally {
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void lookupDoesNotCreateInstances() {
+    ThreadContext context = new ThreadContext(ContextualSlots.NONE, 0, 0);
+    try {
+      assertNull(context.get(this.contextual));
+      assertTrue(context.getScopeStatus(0).isEmpty());
+    } finally {
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void instancesOfTerminatedThreadsAreDestroyed() throws Exception {
+    final ThreadContext context = new ThreadContext(ContextualSlots.NONE, 0, 0);
+    try {
+      Thread thread = new Thread(new Runnable() {
+        public void run() {
+          context.get(contextual, new TestCreationalContext());
+        }
+      }, "terminated-worker");
+      thread.start();
+      thread.join();
+
+      List<ThreadContext.ScopeStatus> status = context.getScopeStatus(0);
+      assertEquals(1, status.size());
+      assertEquals("terminated-worker", status.get(0).getThreadName());
+      assertFalse(status.get(0).isThreadAlive());
+      assertEquals(1, status.get(0).getInstanceCount());
+
+      context.sweep();
+      assertEquals(1, this.destroyed.get());
+      assertTrue(context.getScopeStatus(0).isEmpty());
+    } finally {
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void tasksSubmittedBeforeFirstAccessShareInstances() throws Exception {
+    final ThreadContext context = new ThreadContext(ContextualSlots.NONE, 0, 0);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Callable<Object> getInstance = new Callable<Object>() {
+        public Object call() {
+          return context.get(contextual, new TestCreationalContext());
+        }
+      };
+      Future<Object> first
+        = executor.submit(ContextSnapshot.capture(context, new DefaultDestroyableContext[0]).wrap(getInstance));
+      Future<Object> second
+        = executor.submit(ContextSnapshot.capture(context, new DefaultDestroyableContext[0]).wrap(getInstance));
+
+      Object instance = first.get();
+      assertSame(instance, second.get());
+      assertSame(instance, context.get(this.contextual));
+      assertEquals(0, this.destroyed.get());
+      context.end();
+      assertEquals(1, this.destroyed.get());
+    } finally {
+      executor.shutdown();
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void instancesCreatedAfterEndOfSharedScopeAreDestroyedOnRestore() throws Exception {
+    final ThreadContext context = new ThreadContext(ContextualSlots.NONE, 0, 0);
+    try {
+      final Object instance = context.get(this.contextual, new TestCreationalContext());
+      final ContextSnapshot snapshot = ContextSnapshot.capture(context, new DefaultDestroyableContext[0]);
+      final CountDownLatch installed = new CountDownLatch(1);
+      final CountDownLatch ended = new CountDownLatch(1);
+      final AtomicReference<Object> workerInstance = new AtomicReference<Object>();
+      Thread thread = new Thread(new Runnable() {
+        public void run() {
+          ContextSnapshot previous = snapshot.install();
+          try {
+            assertSame(instance, context.get(contextual, new TestCreationalContext()));
+            installed.countDown();
+            ended.await();
+            workerInstance.set(context.get(contextual, new TestCreationalContext()));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            previous.install();
+          }
+        }
+      });
+      thread.start();
+      installed.await();
+      context.end();
+      assertEquals(1, this.destroyed.get());
+      ended.countDown();
+      thread.join();
+
+      assertNotSame(instance, workerInstance.get());
+      assertEquals(2, this.destroyed.get());
+      assertTrue(context.getScopeStatus(0).isEmpty());
+    } finally {
+      context.shutdown();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void instancesAreCreatedOutsideOfTheLock() throws Exception {
+    final ThreadContext context = new ThreadContext(ContextualSlots.NONE, 0, 0);
+    try {
+      context.get(this.contextual, new TestCreationalContext());
+      final ContextSnapshot snapshot = ContextSnapshot.capture(context, new DefaultDestroyableContext[0]);
+      final CountDownLatch creating = new CountDownLatch(1);
+      final CountDownLatch created = new CountDownLatch(1);
+      final Contextual<Object> slowContextual = new Contextual<Object>() {
+        public Object create(CreationalContext<Object> creationalContext) {
+          creating.countDown();
+          try {
+            created.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return new Object();
+        }
+
+        public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+        }
+      };
+      final AtomicReference<Object> slowInstance = new AtomicReference<Object>();
+      Thread thread = new Thread(new Runnable() {
+        public void run() {
+          ContextSnapshot previous = snapshot.install();
+          try {
+            slowInstance.set(context.get(slowContextual, new TestCreationalContext()));
+          } finally {
+            previous.install();
+          }
+        }
+      });
+      thread.start();
+      creating.await();
+
+      // the shared instances are not locked while the other thread creates its instance
+      assertNotNull(context.get(new Contextual<Object>() {
+        public Object create(CreationalContext<Object> creationalContext) {
+          return new Object();
+        }
+
+        public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+        }
+      }, new TestCreationalContext()));
+      created.countDown();
+      thread.join();
+      assertSame(slowInstance.get(), context.get(slowContextual, new TestCreationalContext()));
+    } finally {
+      context.end();
+      context.shutdown();
+    }
+  }
+
+  @Test
+  public void failedCreationIsRetried() {
+    ThreadContext context = new ThreadContext(ContextualSlots.NONE, 0, 0);
+    final AtomicInteger attempts = new AtomicInteger();
+    Contextual<Object> failingContextual = new Contextual<Object>() {
+      public Object create(CreationalContext<Object> creationalContext) {
+        if (attempts.incrementAndGet() == 1) {
+          throw new IllegalStateException("first attempt");
+        }
+        return new Object();
+      }
+
+      public void destroy(Object instance, CreationalContext<Object> creationalContext) {
+      }
+    };
+    try {
+      try {
+        context.get(failingContextual, new TestCreationalContext());
+        fail("creation should fail");
+      } catch (IllegalStateException e) {
+        assertEquals("first attempt", e.getMessage());
+      }
+      assertNotNull(context.get(failingContextual, new TestCreationalContext()));
+      assertEquals(2, attempts.get());
+    } finally {
+      context.end();
+      context.shutdown();
+    }
+  }
+
+  private static class TestCreationalContext implements CreationalContext<Object> {
+
+    public void push(Object incompleteInstance) {
+    }
+
+    public void release() {
+    }
+  }
+}
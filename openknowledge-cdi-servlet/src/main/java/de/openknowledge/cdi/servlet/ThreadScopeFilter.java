@@ -0,0 +1,117 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.servlet;
+
+import java.io.IOException;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import de.openknowledge.cdi.scope.ThreadContext;
+import de.openknowledge.cdi.scope.ThreadContextExtension;
+import de.openknowledge.cdi.scope.ThreadScoped;
+
+/**
+ * A servlet filter that bounds the {@link ThreadScoped} scope of the request thread by the request.
+ * The {@link ThreadScoped} instances that were created while processing the request are destroyed
+ * when the request is finished.
+ * <pre>
+ *  &lt;filter&gt;
+ *    &lt;filter-name&gt;threadScope&lt;/filter-name&gt;
+ *    &lt;filter-class&gt;de.openknowledge.cdi.servlet.ThreadScopeFilter&lt;/filter-class&gt;
+ *  &lt;/filter&gt;
+ *  &lt;filter-mapping&gt;
+ *    &lt;filter-name&gt;threadScope&lt;/filter-name&gt;
+ *    &lt;url-pattern&gt;/*&lt;/url-pattern&gt;
+ *  &lt;/filter-mapping&gt;
+ * </pre>
+ * If the container does not inject the filter, the bean manager is looked up in JNDI. The name may be
+ * configured with the init parameter {@link #BEAN_MANAGER_NAME_PARAMETER}.
+ *
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+public class ThreadScopeFilter implements Filter {
+
+  public static final String BEAN_MANAGER_NAME_PARAMETER = "beanManagerName";
+
+  public static final String DEFAULT_BEAN_MANAGER_NAME = "java:comp/BeanManager";
+
+  @Inject
+  private ThreadContextExtension threadContextExtension;
+  private ThreadContext threadContext;
+
+  public void init(FilterConfig filterConfig) throws ServletException {
+    if (this.threadContextExtension == null) {
+      String beanManagerName = filterConfig.getInitParameter(BEAN_MANAGER_NAME_PARAMETER);
+      BeanManager beanManager = lookupBeanManager(beanManagerName != null ? beanManagerName : DEFAULT_BEAN_MANAGER_NAME);
+      this.threadContextExtension = getThreadContextExtension(beanManager);
+    }
+    if (this.threadContextExtension == null || this.threadContextExtension.getContext() == null) {
+      throw new ServletException(ThreadContextExtension.class.getName() + " is not registered");
+    }
+    this.threadContext = this.threadContextExtension.getContext();
+  }
+
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+    throws IOException, ServletException {
+    this.threadContext.begin();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      this.threadContext.end();
+    }
+  }
+
+  public void destroy() {
+    this.threadContext = null;
+  }
+
+  /**
+   * Looks up the bean manager, if the filter was not injected by the container.
+   *
+   * @param name The JNDI name of the bean manager.
+   * @return The bean manager.
+   * @throws ServletException If the bean manager cannot be found.
+   */
+  protected BeanManager lookupBeanManager(String name) throws ServletException {
+    try {
+      return (BeanManager)new InitialContext().lookup(name);
+    } catch (NamingException e) {
+      throw new ServletException("Unable to lookup bean manager " + name, e);
+    }
+  }
+
+  private ThreadContextExtension getThreadContextExtension(BeanManager beanManager) {
+    Bean<?> bean = beanManager.resolve(beanManager.getBeans(ThreadContextExtension.class));
+    if (bean == null) {
+      return null;
+    }
+    return (ThreadContextExtension)beanManager.getReference(bean,
+                                                           ThreadContextExtension.class,
+                                                           beanManager.createCreationalContext(bean));
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.servlet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import de.openknowledge.cdi.scope.ThreadScoped;
+
+/**
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+@ThreadScoped
+public class RequestResource {
+
+  static final AtomicInteger DESTROYED = new AtomicInteger();
+
+  private int requestCount;
+
+  public int nextRequest() {
+    return ++this.requestCount;
+  }
+
+  @PreDestroy
+  public void close() {
+    DESTROYED.incrementAndGet();
+  }
+}
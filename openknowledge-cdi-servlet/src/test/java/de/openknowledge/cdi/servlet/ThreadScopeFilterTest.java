@@ -0,0 +1,103 @@
+/*
+ * Copyright open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.openknowledge.cdi.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Enumeration;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import de.openknowledge.cdi.test.CdiJunit4TestRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * @author Arne Limburg - open knowledge GmbH (arne.limburg@openknowledge.de)
+ */
+@RunWith(CdiJunit4TestRunner.class)
+public class ThreadScopeFilterTest {
+
+  @Inject
+  private BeanManager beanManager;
+  @Inject
+  private RequestResource requestResource;
+
+  @Test
+  public void requestsDoNotShareThreadScopedInstances() throws Exception {
+    ThreadScopeFilter filter = new ThreadScopeFilter() {
+      @Override
+      protected BeanManager lookupBeanManager(String name) {
+        return beanManager;
+      }
+    };
+    filter.init(new TestFilterConfig());
+    final int[] requestCounts = new int[2];
+    int destroyed = RequestResource.DESTROYED.get();
+
+    filter.doFilter(null, null, new FilterChain() {
+      public void doFilter(ServletRequest request, ServletResponse response) {
+        requestCounts[0] = requestResource.nextRequest();
+      }
+    });
+    assertEquals(destroyed + 1, RequestResource.DESTROYED.get());
+
+    try {
+      filter.doFilter(null, null, new FilterChain() {
+        public void doFilter(ServletRequest request, ServletResponse response) throws ServletException {
+          requestCounts[1] = requestResource.nextRequest();
+          throw new ServletException("request failed");
+        }
+      });
+      fail("ServletException expected");
+    } catch (ServletException e) {
+      // expected
+    }
+    assertEquals(destroyed + 2, RequestResource.DESTROYED.get());
+    assertEquals(1, requestCounts[0]);
+    assertEquals(1, requestCounts[1]);
+  }
+
+  private static class TestFilterConfig implements FilterConfig {
+
+    public String getFilterName() {
+      return "threadScope";
+    }
+
+    public ServletContext getServletContext() {
+      return null;
+    }
+
+    public String getInitParameter(String name) {
+      return null;
+    }
+
+    public Enumeration getInitParameterNames() {
+      return Collections.enumeration(Collections.emptyList());
+    }
+  }
+}